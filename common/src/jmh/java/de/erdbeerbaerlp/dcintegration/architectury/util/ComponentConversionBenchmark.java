@@ -0,0 +1,92 @@
+package de.erdbeerbaerlp.dcintegration.architectury.util;
+
+import dcshadow.net.kyori.adventure.text.Component;
+import dcshadow.net.kyori.adventure.text.event.ClickEvent;
+import dcshadow.net.kyori.adventure.text.event.HoverEvent;
+import dcshadow.net.kyori.adventure.text.format.NamedTextColor;
+import dcshadow.net.kyori.adventure.text.format.TextColor;
+import dcshadow.net.kyori.adventure.text.format.TextDecoration;
+import dcshadow.net.kyori.adventure.text.serializer.gson.GsonComponentSerializer;
+import net.minecraft.SharedConstants;
+import net.minecraft.core.HolderLookup;
+import net.minecraft.data.registries.VanillaRegistries;
+import net.minecraft.network.chat.MutableComponent;
+import net.minecraft.server.Bootstrap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ComponentConverter} against the JSON round trip the chat path, the mention rewrite and the in-game messages
+ * used before.
+ * <p>
+ * The vanilla side reads raw style fields through a mixin accessor, which is not applied outside the game. The vanilla
+ * chat line converted to Adventure is therefore unstyled; the Adventure message converted to vanilla carries colors,
+ * decorations, a click and a hover event.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ComponentConversionBenchmark {
+    private HolderLookup.Provider registries;
+    private net.minecraft.network.chat.Component chatLine;
+    private Component discordMessage;
+
+    @Setup
+    public void setUp() {
+        SharedConstants.tryDetectVersion();
+        Bootstrap.bootStrap();
+        registries = VanillaRegistries.createLookup();
+        // what the decorated content of a chat line looks like: <name> message, with a mention in it
+        chatLine = net.minecraft.network.chat.Component.translatable("chat.type.text",
+                net.minecraft.network.chat.Component.literal("Steve"),
+                net.minecraft.network.chat.Component.literal("has anyone seen ")
+                        .append(net.minecraft.network.chat.Component.literal("@Alex"))
+                        .append(net.minecraft.network.chat.Component.literal(" near the nether portal?")));
+        // what a message from Discord looks like once formatted for the game
+        discordMessage = Component.text()
+                .append(Component.text("[Discord] ", NamedTextColor.BLUE))
+                .append(Component.text("Alex", TextColor.color(0x3498DB))
+                        .hoverEvent(HoverEvent.showText(Component.text("Click to mention")))
+                        .clickEvent(ClickEvent.suggestCommand("@Alex")))
+                .append(Component.text(": ", NamedTextColor.WHITE))
+                .append(Component.text("on my way", NamedTextColor.WHITE).decorate(TextDecoration.BOLD))
+                .build();
+        if (!directToMinecraft().equals(jsonToMinecraft()))
+            throw new IllegalStateException("direct conversion differs from the JSON round trip");
+        if (!directToAdventure().equals(jsonToAdventure()))
+            throw new IllegalStateException("direct conversion differs from the JSON round trip");
+    }
+
+    @Benchmark
+    public Component jsonToAdventure() {
+        return GsonComponentSerializer.gson().deserialize(net.minecraft.network.chat.Component.Serializer.toJson(chatLine, registries));
+    }
+
+    @Benchmark
+    public Component directToAdventure() {
+        return ComponentConverter.toAdventure(chatLine, registries);
+    }
+
+    @Benchmark
+    public MutableComponent jsonToMinecraft() {
+        return net.minecraft.network.chat.Component.Serializer.fromJson(GsonComponentSerializer.gson().serialize(discordMessage), registries);
+    }
+
+    @Benchmark
+    public MutableComponent directToMinecraft() {
+        return ComponentConverter.toMinecraft(discordMessage, registries);
+    }
+}
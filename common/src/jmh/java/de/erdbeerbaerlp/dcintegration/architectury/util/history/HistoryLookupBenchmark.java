@@ -0,0 +1,109 @@
+package de.erdbeerbaerlp.dcintegration.architectury.util.history;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Duplicate lookup of {@code MessageHistory.checkDuplicate}: the linear scan it used to do over the whole history list,
+ * against the {@link StripedHistoryIndex} it uses now.
+ * <p>
+ * The hit benchmarks look up messages already in the history. The miss benchmarks look up new messages of the same
+ * players, which is what most chat lines are. A miss would add the message, so it is passed as already expired, which
+ * {@link CompactHistoryIndex#add} ignores: the lookup is measured in full but the index keeps its size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistoryLookupBenchmark {
+    private static final long WINDOW = TimeUnit.HOURS.toMillis(1);
+
+    @Param({"1000", "10000", "100000"})
+    public int entries;
+
+    private final List<Entry> list = new ArrayList<>();
+    private StripedHistoryIndex index;
+    private Entry[] probes;
+    private Entry[] missProbes;
+    private int next;
+
+    /**
+     * An element of the history list as it was kept before the index
+     */
+    private record Entry(String playerID, String message, LocalDate date) {
+        boolean matchesToday() {
+            return date.equals(LocalDate.now());
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(42);
+        final long now = System.currentTimeMillis();
+        index = new StripedHistoryIndex(16, false, WINDOW, entries, 0.01);
+        final String[] players = new String[Math.max(1, entries / 50)];
+        for (int i = 0; i < players.length; i++)
+            players[i] = new UUID(random.nextLong(), random.nextLong()).toString();
+        for (int i = 0; i < entries; i++) {
+            final Entry entry = new Entry(players[i % players.length], "message number " + i, LocalDate.now());
+            list.add(entry);
+            index.add(HistoryRecord.of(entry.playerID(), entry.message(), now), entry.message(), now + WINDOW, now);
+        }
+        probes = new Entry[1024];
+        for (int i = 0; i < probes.length; i++)
+            probes[i] = list.get(random.nextInt(entries));
+        missProbes = new Entry[probes.length];
+        for (int i = 0; i < missProbes.length; i++)
+            missProbes[i] = new Entry(players[random.nextInt(players.length)], "new message number " + i, LocalDate.now());
+    }
+
+    @Benchmark
+    public long linearScan() {
+        return linearScan(probes[next++ & (probes.length - 1)]);
+    }
+
+    @Benchmark
+    public long linearScanMiss() {
+        return linearScan(missProbes[next++ & (missProbes.length - 1)]);
+    }
+
+    @Benchmark
+    public int stripedIndex() {
+        final Entry probe = probes[next++ & (probes.length - 1)];
+        final long now = System.currentTimeMillis();
+        return index.checkAndAdd(HistoryRecord.of(probe.playerID(), probe.message(), now), probe.message(), now + WINDOW, now);
+    }
+
+    @Benchmark
+    public int stripedIndexMiss() {
+        final Entry probe = missProbes[next++ & (missProbes.length - 1)];
+        final long now = System.currentTimeMillis();
+        return index.checkAndAdd(HistoryRecord.of(probe.playerID(), probe.message(), now), probe.message(), now - 1000, now);
+    }
+
+    private long linearScan(Entry probe) {
+        return list.stream()
+                .filter(Entry::matchesToday)
+                .filter(element -> element.playerID().equals(probe.playerID()))
+                .filter(element -> element.message().equals(probe.message()))
+                .count();
+    }
+}
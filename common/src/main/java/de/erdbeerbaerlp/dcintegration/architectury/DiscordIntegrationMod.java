@@ -2,13 +2,26 @@ package de.erdbeerbaerlp.dcintegration.architectury;
 
 import dcshadow.net.kyori.adventure.chat.SignedMessage;
 import dcshadow.net.kyori.adventure.text.Component;
-import dcshadow.net.kyori.adventure.text.serializer.gson.GsonComponentSerializer;
 import de.erdbeerbaerlp.dcintegration.architectury.api.ArchitecturyDiscordEventHandler;
 import de.erdbeerbaerlp.dcintegration.architectury.command.McCommandDiscord;
 import de.erdbeerbaerlp.dcintegration.architectury.metrics.Metrics;
-import de.erdbeerbaerlp.dcintegration.architectury.util.ArchitecturyMessageUtils;
+import de.erdbeerbaerlp.dcintegration.architectury.outbound.AdvancementCoalescer;
+import de.erdbeerbaerlp.dcintegration.architectury.outbound.ChatRelay;
+import de.erdbeerbaerlp.dcintegration.architectury.outbound.ChatSnapshot;
+import de.erdbeerbaerlp.dcintegration.architectury.outbound.CommandLogDigest;
+import de.erdbeerbaerlp.dcintegration.architectury.outbound.DeathDigest;
+import de.erdbeerbaerlp.dcintegration.architectury.outbound.JoinLeaveAggregator;
+import de.erdbeerbaerlp.dcintegration.architectury.outbound.OutboundScheduler;
+import de.erdbeerbaerlp.dcintegration.architectury.outbound.OutboundSpool;
+import de.erdbeerbaerlp.dcintegration.architectury.outbound.SpoolReplayer;
+import de.erdbeerbaerlp.dcintegration.architectury.storage.NameCache;
+import de.erdbeerbaerlp.dcintegration.architectury.storage.TuningConfig;
 import de.erdbeerbaerlp.dcintegration.architectury.util.ArchitecturyServerInterface;
+import de.erdbeerbaerlp.dcintegration.architectury.util.ComponentConverter;
 import de.erdbeerbaerlp.dcintegration.architectury.util.MessageHistory;
+import de.erdbeerbaerlp.dcintegration.architectury.util.PlayerContext;
+import de.erdbeerbaerlp.dcintegration.architectury.util.template.EmbedTemplate;
+import de.erdbeerbaerlp.dcintegration.architectury.util.template.Placeholders;
 import de.erdbeerbaerlp.dcintegration.common.DiscordIntegration;
 import de.erdbeerbaerlp.dcintegration.common.addon.AddonLoader;
 import de.erdbeerbaerlp.dcintegration.common.addon.DiscordAddonMeta;
@@ -18,7 +31,6 @@ import de.erdbeerbaerlp.dcintegration.common.storage.Localization;
 import de.erdbeerbaerlp.dcintegration.common.storage.linking.LinkManager;
 import de.erdbeerbaerlp.dcintegration.common.util.*;
 import net.dv8tion.jda.api.EmbedBuilder;
-import net.dv8tion.jda.api.entities.MessageEmbed;
 import net.dv8tion.jda.api.entities.channel.middleman.GuildMessageChannel;
 import net.dv8tion.jda.api.utils.messages.MessageCreateBuilder;
 import net.dv8tion.jda.api.utils.messages.MessageCreateData;
@@ -29,8 +41,10 @@ import net.minecraft.server.level.ServerPlayer;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static de.erdbeerbaerlp.dcintegration.common.DiscordIntegration.*;
 
@@ -40,6 +54,14 @@ public final class DiscordIntegrationMod {
     public static Metrics bstats;
     public static boolean stopped = false;
     public static MessageHistory history = new MessageHistory();
+    public static ChatRelay chatRelay = new ChatRelay();
+    public static OutboundScheduler outbound = new OutboundScheduler();
+    public static JoinLeaveAggregator joinLeave = new JoinLeaveAggregator();
+    public static AdvancementCoalescer advancements = new AdvancementCoalescer();
+    public static DeathDigest deaths = new DeathDigest();
+    public static CommandLogDigest commandLog = new CommandLogDigest();
+    private static OutboundSpool spool;
+    private static SpoolReplayer spoolReplayer;
 
 
     public static final ArrayList<UUID> timeouts = new ArrayList<>();
@@ -59,7 +81,12 @@ public final class DiscordIntegrationMod {
 
     public static void serverStarting(MinecraftServer minecraftServer) {
         server = minecraftServer;
+        history.init();
+        outbound.start();
+        joinLeave.start();
+        outbound.mayBlock(() -> !minecraftServer.isSameThread());
         DiscordIntegration.INSTANCE = new DiscordIntegration(new ArchitecturyServerInterface());
+        openSpool();
         try {
             //Wait a short time to allow JDA to get initiaized
             DiscordIntegration.LOGGER.info("Waiting for JDA to initialize to send starting message... (max 5 seconds before skipping)");
@@ -76,7 +103,7 @@ public final class DiscordIntegrationMod {
                         if (DiscordIntegration.INSTANCE.getChannel() != null) {
                             final MessageCreateData m;
                             if (Configuration.instance().embedMode.enabled && Configuration.instance().embedMode.startMessages.asEmbed)
-                                m = new MessageCreateBuilder().setEmbeds(Configuration.instance().embedMode.startMessages.toEmbed().setDescription(Localization.instance().serverStarting).build()).build();
+                                m = new MessageCreateBuilder().setEmbeds(EmbedTemplate.of(EmbedTemplate.Kind.START).embed().setDescription(Localization.instance().serverStarting).build()).build();
                             else
                                 m = new MessageCreateBuilder().addContent(Localization.instance().serverStarting).build();
                             DiscordIntegration.startingMsg = DiscordIntegration.INSTANCE.sendMessageReturns(m, DiscordIntegration.INSTANCE.getChannel(Configuration.instance().advanced.serverChannelID));
@@ -96,19 +123,19 @@ public final class DiscordIntegrationMod {
                 if (DiscordIntegration.startingMsg != null) {
                     if (Configuration.instance().embedMode.enabled && Configuration.instance().embedMode.startMessages.asEmbed) {
                         if (!Configuration.instance().embedMode.startMessages.customJSON.isBlank()) {
-                            final EmbedBuilder b = Configuration.instance().embedMode.startMessages.toEmbedJson(Configuration.instance().embedMode.startMessages.customJSON);
+                            final EmbedBuilder b = EmbedTemplate.of(EmbedTemplate.Kind.START).custom(new Placeholders());
                             DiscordIntegration.startingMsg.thenAccept((a) -> a.editMessageEmbeds(b.build()).queue());
                         } else
-                            DiscordIntegration.startingMsg.thenAccept((a) -> a.editMessageEmbeds(Configuration.instance().embedMode.startMessages.toEmbed().setDescription(Localization.instance().serverStarted).build()).queue());
+                            DiscordIntegration.startingMsg.thenAccept((a) -> a.editMessageEmbeds(EmbedTemplate.of(EmbedTemplate.Kind.START).embed().setDescription(Localization.instance().serverStarted).build()).queue());
                     } else
                         DiscordIntegration.startingMsg.thenAccept((a) -> a.editMessage(Localization.instance().serverStarted).queue());
                 } else {
                     if (Configuration.instance().embedMode.enabled && Configuration.instance().embedMode.startMessages.asEmbed) {
                         if (!Configuration.instance().embedMode.startMessages.customJSON.isBlank()) {
-                            final EmbedBuilder b = Configuration.instance().embedMode.startMessages.toEmbedJson(Configuration.instance().embedMode.startMessages.customJSON);
+                            final EmbedBuilder b = EmbedTemplate.of(EmbedTemplate.Kind.START).custom(new Placeholders());
                             DiscordIntegration.INSTANCE.sendMessage(new DiscordMessage(b.build()), INSTANCE.getChannel(Configuration.instance().advanced.serverChannelID));
                         } else
-                            DiscordIntegration.INSTANCE.sendMessage(new DiscordMessage(Configuration.instance().embedMode.startMessages.toEmbed().setDescription(Localization.instance().serverStarted).build()), INSTANCE.getChannel(Configuration.instance().advanced.serverChannelID));
+                            DiscordIntegration.INSTANCE.sendMessage(new DiscordMessage(EmbedTemplate.of(EmbedTemplate.Kind.START).embed().setDescription(Localization.instance().serverStarted).build()), INSTANCE.getChannel(Configuration.instance().advanced.serverChannelID));
                     } else
                         DiscordIntegration.INSTANCE.sendMessage(Localization.instance().serverStarted, INSTANCE.getChannel(Configuration.instance().advanced.serverChannelID));
                 }
@@ -137,14 +164,28 @@ public final class DiscordIntegrationMod {
 
     public static void serverStopping(MinecraftServer minecraftServer) {
         Metrics.MetricsBase.scheduler.shutdownNow();
+        // relay the last chat lines before the stop message and before JDA goes away
+        chatRelay.shutdown(5, TimeUnit.SECONDS);
+        // players are kicked after this, their leave messages are sent one by one
+        joinLeave.stop();
+        advancements.flush();
+        deaths.flush();
+        commandLog.flush();
+        outbound.shutdown(5, TimeUnit.SECONDS);
+        closeSpool();
+        for (OutboundScheduler.Category category : OutboundScheduler.Category.values()) {
+            final OutboundScheduler.Stats stats = outbound.stats(category);
+            if (stats.dropped() + stats.summarized() > 0)
+                DiscordIntegration.LOGGER.info("Outbound " + stats);
+        }
         if (DiscordIntegration.INSTANCE != null) {
             if (!Localization.instance().serverStopped.isBlank() && !history.checkDuplicate(minecraftServer, "Stopping...").hasDuplicate())
                 if (Configuration.instance().embedMode.enabled && Configuration.instance().embedMode.stopMessages.asEmbed) {
                     if (!Configuration.instance().embedMode.stopMessages.customJSON.isBlank()) {
-                        final EmbedBuilder b = Configuration.instance().embedMode.stopMessages.toEmbedJson(Configuration.instance().embedMode.stopMessages.customJSON);
+                        final EmbedBuilder b = EmbedTemplate.of(EmbedTemplate.Kind.STOP).custom(new Placeholders());
                         DiscordIntegration.INSTANCE.sendMessage(new DiscordMessage(b.build()));
                     } else
-                        DiscordIntegration.INSTANCE.sendMessage(new DiscordMessage(Configuration.instance().embedMode.stopMessages.toEmbed().setDescription(Localization.instance().serverStopped).build()));
+                        DiscordIntegration.INSTANCE.sendMessage(new DiscordMessage(EmbedTemplate.of(EmbedTemplate.Kind.STOP).embed().setDescription(Localization.instance().serverStopped).build()));
                 } else
                     DiscordIntegration.INSTANCE.sendMessage(Localization.instance().serverStopped);
             DiscordIntegration.INSTANCE.stopThreads();
@@ -152,6 +193,29 @@ public final class DiscordIntegrationMod {
         stopped = true;
     }
 
+    private static void openSpool() {
+        final TuningConfig.Spool config = TuningConfig.instance().outbound.spool;
+        if (!config.enabled || spool != null) return;
+        spool = new OutboundSpool(Path.of("DiscordIntegration-Data", "Spool"), config.segmentBytes, config.maxBytes);
+        final int pending = spool.open();
+        if (pending > 0)
+            DiscordIntegration.LOGGER.info("Outbound spool holds " + pending + " unsent messages, they are sent once Discord is reachable");
+        outbound.spool(spool);
+        spoolReplayer = new SpoolReplayer(outbound, spool);
+        spoolReplayer.start(config.replayIntervalMillis, config.replayMessages);
+    }
+
+    private static void closeSpool() {
+        if (spool == null) return;
+        spoolReplayer.stop();
+        outbound.spool(null);
+        if (spool.deferred() > 0)
+            DiscordIntegration.LOGGER.info("Outbound spool keeps " + spool.deferred() + " unsent messages for the next start");
+        spool.close();
+        spool = null;
+        spoolReplayer = null;
+    }
+
     public static void serverStopped(MinecraftServer minecraftServer) {
 
         Metrics.MetricsBase.scheduler.shutdownNow();
@@ -161,7 +225,7 @@ public final class DiscordIntegrationMod {
                 if (!Localization.instance().serverCrash.isBlank() && !history.checkDuplicate(minecraftServer, "Stopped!").hasDuplicate())
                     try {
                         if (Configuration.instance().embedMode.enabled && Configuration.instance().embedMode.stopMessages.asEmbed) {
-                            DiscordIntegration.INSTANCE.sendMessageReturns(new MessageCreateBuilder().addEmbeds(Configuration.instance().embedMode.stopMessages.toEmbed().setDescription(Localization.instance().serverCrash).build()).build(), DiscordIntegration.INSTANCE.getChannel(Configuration.instance().advanced.serverChannelID)).get();
+                            DiscordIntegration.INSTANCE.sendMessageReturns(new MessageCreateBuilder().addEmbeds(EmbedTemplate.of(EmbedTemplate.Kind.STOP).embed().setDescription(Localization.instance().serverCrash).build()).build(), DiscordIntegration.INSTANCE.getChannel(Configuration.instance().advanced.serverChannelID)).get();
                         } else
                             DiscordIntegration.INSTANCE.sendMessageReturns(new MessageCreateBuilder().setContent(Localization.instance().serverCrash).build(), DiscordIntegration.INSTANCE.getChannel(Configuration.instance().advanced.serverChannelID)).get();
                     } catch (InterruptedException | ExecutionException ignored) {
@@ -169,6 +233,11 @@ public final class DiscordIntegrationMod {
             });
             DiscordIntegration.INSTANCE.kill(false);
         }
+        history.shutdown();
+        DiscordIntegration.LOGGER.info("Name cache " + NameCache.instance().stats());
+        NameCache.instance().save();
+        PlayerContext.clear();
+        advancements.clearCache();
     }
 
 
@@ -188,9 +257,7 @@ public final class DiscordIntegrationMod {
         if (DiscordIntegration.INSTANCE == null) return message;
 
         final PlayerChatMessage finalMessage = message;
-        final String text = MessageUtils.escapeMarkdown(message.decoratedContent().getString());
-        final MessageEmbed embed = ArchitecturyMessageUtils.genItemStackEmbedIfAvailable(message.decoratedContent(), player.level());
-
+        // addons get the live player, so this event stays on the server thread
         if (DiscordIntegration.INSTANCE.callEvent((e) -> {
             if (e instanceof ArchitecturyDiscordEventHandler) {
                 return ((ArchitecturyDiscordEventHandler) e).onMcChatMessage(finalMessage.decoratedContent(), player);
@@ -199,46 +266,34 @@ public final class DiscordIntegrationMod {
         })) {
             return message;
         }
-        final GuildMessageChannel channel = DiscordIntegration.INSTANCE.getChannel(Configuration.instance().advanced.chatOutputChannelID);
-        if (channel == null) {
-            return message;
+        // the in-game mention rewrite has to happen before the broadcast, and only if the line contains a mention
+        final boolean rewrite = !Configuration.instance().compatibility.disableParsingMentionsIngame && containsMention(message.decoratedContent().getString());
+        final GuildMessageChannel channel = rewrite ? DiscordIntegration.INSTANCE.getChannel(Configuration.instance().advanced.chatOutputChannelID) : null;
+        Component comp = null;
+        if (channel != null) {
+            // a message cancelled by an addon stays unchanged in game, so lines with mentions call the event here and the relay skips it
+            final Component content = ComponentConverter.toAdventure(message.decoratedContent(), player.level().registryAccess());
+            if (DiscordIntegration.INSTANCE.callEvent((e) -> e.onMinecraftMessage(content, player.getUUID())))
+                return message;
+            comp = content;
         }
-        final String json = net.minecraft.network.chat.Component.Serializer.toJson(message.decoratedContent(), player.level().registryAccess());
-
-        final Component comp = GsonComponentSerializer.gson().deserialize(json);
-        if(INSTANCE.callEvent((e)->e.onMinecraftMessage(comp, player.getUUID()))){
-            return message;
-        }
-        if (!Localization.instance().discordChatMessage.isBlank() && !history.checkDuplicate(player, message).hasDuplicate())
-            if (Configuration.instance().embedMode.enabled && Configuration.instance().embedMode.chatMessages.asEmbed) {
-                final String avatarURL = Configuration.instance().webhook.playerAvatarURL.replace("%uuid%", player.getUUID().toString()).replace("%uuid_dashless%", player.getUUID().toString().replace("-", "")).replace("%name%", player.getName().getString()).replace("%randomUUID%", UUID.randomUUID().toString());
-                if (!Configuration.instance().embedMode.chatMessages.customJSON.isBlank()) {
-                    final EmbedBuilder b = Configuration.instance().embedMode.chatMessages.toEmbedJson(Configuration.instance().embedMode.chatMessages.customJSON
-                            .replace("%uuid%", player.getUUID().toString())
-                            .replace("%uuid_dashless%", player.getUUID().toString().replace("-", ""))
-                            .replace("%name%", ArchitecturyMessageUtils.formatPlayerName(player))
-                            .replace("%randomUUID%", UUID.randomUUID().toString())
-                            .replace("%avatarURL%", avatarURL)
-                            .replace("%msg%", text)
-                            .replace("%playerColor%", "" + TextColors.generateFromUUID(player.getUUID()).getRGB())
-                    );
-                    DiscordIntegration.INSTANCE.sendMessage(new DiscordMessage(b.build()),INSTANCE.getChannel(Configuration.instance().advanced.chatOutputChannelID));
-                } else {
-                    EmbedBuilder b = Configuration.instance().embedMode.chatMessages.toEmbed();
-                    if (Configuration.instance().embedMode.chatMessages.generateUniqueColors)
-                        b = b.setColor(TextColors.generateFromUUID(player.getUUID()));
-                    b = b.setAuthor(ArchitecturyMessageUtils.formatPlayerName(player), null, avatarURL)
-                            .setDescription(text);
-                    DiscordIntegration.INSTANCE.sendMessage(new DiscordMessage(b.build()),INSTANCE.getChannel(Configuration.instance().advanced.chatOutputChannelID));
-                }
-            } else
-                DiscordIntegration.INSTANCE.sendMessage(ArchitecturyMessageUtils.formatPlayerName(player), player.getUUID().toString(), new DiscordMessage(embed, text, true), channel);
-
-        if (!Configuration.instance().compatibility.disableParsingMentionsIngame) {
-            final String editedJson = GsonComponentSerializer.gson().serialize(MessageUtils.mentionsToNames(comp, channel.getGuild()));
-            final MutableComponent txt = net.minecraft.network.chat.Component.Serializer.fromJson(editedJson,player.level().registryAccess());
+        // everything Discord-bound runs on the relay worker, after vanilla broadcast the message
+        chatRelay.submit(new ChatSnapshot(
+                PlayerContext.of(player),
+                message.decoratedContent(),
+                player.registryAccess(),
+                new MessageHistory.SimpleChatMessage(player, message),
+                comp
+        ));
+        if (comp != null) {
+            final MutableComponent txt = ComponentConverter.toMinecraft(MessageUtils.mentionsToNames(comp, channel.getGuild()), player.level().registryAccess());
             message = message.withUnsignedContent(txt);
         }
         return message;
     }
+
+    // Discord mentions as written by MessageUtils: <@user>, <@!user>, <@&role> and <#channel>
+    private static boolean containsMention(String text) {
+        return text.contains("<@") || text.contains("<#");
+    }
 }
@@ -1,6 +1,8 @@
 package de.erdbeerbaerlp.dcintegration.architectury.command;
 
 import de.erdbeerbaerlp.dcintegration.architectury.DiscordIntegrationMod;
+import de.erdbeerbaerlp.dcintegration.architectury.util.template.Placeholders;
+import de.erdbeerbaerlp.dcintegration.architectury.util.template.Template;
 import de.erdbeerbaerlp.dcintegration.common.DiscordIntegration;
 import de.erdbeerbaerlp.dcintegration.common.storage.Localization;
 import de.erdbeerbaerlp.dcintegration.common.util.MessageUtils;
@@ -36,18 +38,18 @@ public class DCCommandSender implements CommandSource {
             name = Component.literal("@" + (!member.getUser().getDiscriminator().equals("0000") ? member.getUser().getAsTag() : member.getEffectiveName()))
                     .setStyle(Style.EMPTY.withHoverEvent(
                             new HoverEvent(HoverEvent.Action.SHOW_TEXT,
-                                    Component.literal(Localization.instance().discordUserHover
-                                            .replace("%user#tag%", !member.getUser().getDiscriminator().equals("0000") ? member.getUser().getAsTag() : member.getEffectiveName())
-                                            .replace("%user%", member.getEffectiveName())
-                                            .replace("%id%", member.getId())))));
+                                    Component.literal(Template.render(Localization.instance().discordUserHover, new Placeholders()
+                                            .put("user#tag", () -> !member.getUser().getDiscriminator().equals("0000") ? member.getUser().getAsTag() : member.getEffectiveName())
+                                            .put("user", member.getEffectiveName())
+                                            .put("id", member.getId()))))));
         else
             name = Component.literal("@" + (!user.getDiscriminator().equals("0000") ? user.getAsTag() : user.getEffectiveName()))
                     .setStyle(Style.EMPTY.withHoverEvent(
                             new HoverEvent(HoverEvent.Action.SHOW_TEXT,
-                                    Component.literal(Localization.instance().discordUserHover
-                                            .replace("%user#tag%", !user.getDiscriminator().equals("0000") ? user.getAsTag() : user.getEffectiveName())
-                                            .replace("%user%", user.getEffectiveName())
-                                            .replace("%id%", user.getId())))));
+                                    Component.literal(Template.render(Localization.instance().discordUserHover, new Placeholders()
+                                            .put("user#tag", () -> !user.getDiscriminator().equals("0000") ? user.getAsTag() : user.getEffectiveName())
+                                            .put("user", user.getEffectiveName())
+                                            .put("id", user.getId()))))));
 
         this.cmdMsg = cmdMsg;
     }
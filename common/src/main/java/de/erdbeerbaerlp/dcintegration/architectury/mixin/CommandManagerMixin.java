@@ -2,20 +2,21 @@ package de.erdbeerbaerlp.dcintegration.architectury.mixin;
 
 import com.mojang.brigadier.ParseResults;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
-import dcshadow.net.kyori.adventure.text.serializer.gson.GsonComponentSerializer;
 import de.erdbeerbaerlp.dcintegration.architectury.DiscordIntegrationMod;
+import de.erdbeerbaerlp.dcintegration.architectury.outbound.OutboundScheduler;
 import de.erdbeerbaerlp.dcintegration.architectury.util.ArchitecturyServerInterface;
+import de.erdbeerbaerlp.dcintegration.architectury.util.ComponentConverter;
+import de.erdbeerbaerlp.dcintegration.architectury.util.template.Placeholders;
+import de.erdbeerbaerlp.dcintegration.architectury.util.template.Template;
 import de.erdbeerbaerlp.dcintegration.common.DiscordIntegration;
 import de.erdbeerbaerlp.dcintegration.common.minecraftCommands.MCSubCommand;
 import de.erdbeerbaerlp.dcintegration.common.minecraftCommands.McCommandRegistry;
 import de.erdbeerbaerlp.dcintegration.common.storage.Configuration;
 import de.erdbeerbaerlp.dcintegration.common.storage.Localization;
-import de.erdbeerbaerlp.dcintegration.common.util.DiscordMessage;
 import de.erdbeerbaerlp.dcintegration.common.util.MessageUtils;
 import de.erdbeerbaerlp.dcintegration.common.util.MinecraftPermission;
 import net.minecraft.commands.CommandSourceStack;
 import net.minecraft.commands.Commands;
-import net.minecraft.data.registries.VanillaRegistries;
 import net.minecraft.network.chat.Component;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.entity.Entity;
@@ -39,11 +40,15 @@ public class CommandManagerMixin {
         if (DiscordIntegration.INSTANCE != null) {
             if (!Configuration.instance().commandLog.channelID.equals("0") && !DiscordIntegrationMod.history.checkDuplicate(source, command).hasDuplicate()) {
                 if ((!Configuration.instance().commandLog.commandWhitelist && !ArrayUtils.contains(Configuration.instance().commandLog.ignoredCommands, command.split(" ")[0])) ||
-                        (Configuration.instance().commandLog.commandWhitelist && ArrayUtils.contains(Configuration.instance().commandLog.ignoredCommands, command.split(" ")[0])))
-                    DiscordIntegration.INSTANCE.sendMessage(Configuration.instance().commandLog.message
-                            .replace("%sender%", name)
-                            .replace("%cmd%", command)
-                            .replace("%cmd-no-args%", command.split(" ")[0]), DiscordIntegration.INSTANCE.getChannel(Configuration.instance().commandLog.channelID));
+                        (Configuration.instance().commandLog.commandWhitelist && ArrayUtils.contains(Configuration.instance().commandLog.ignoredCommands, command.split(" ")[0]))) {
+                    if (DiscordIntegrationMod.commandLog.enabled())
+                        DiscordIntegrationMod.commandLog.offer(name, command);
+                    else
+                        DiscordIntegrationMod.outbound.send(OutboundScheduler.Category.COMMAND, Template.render(Configuration.instance().commandLog.message, new Placeholders()
+                                .put("sender", name)
+                                .put("cmd", command)
+                                .put("cmd-no-args", command.split(" ")[0])), DiscordIntegration.INSTANCE.getChannel(Configuration.instance().commandLog.channelID));
+                }
             }
             boolean raw = false;
             if (((command.startsWith("say")) && Configuration.instance().messages.sendOnSayCommand) || (command.startsWith("me") && Configuration.instance().messages.sendOnMeCommand) && !DiscordIntegrationMod.history.checkDuplicate(source, command).hasDuplicate()) {
@@ -63,7 +68,7 @@ public class CommandManagerMixin {
                 }
                 final Entity sourceEntity = source.getEntity();
 
-                DiscordIntegration.INSTANCE.sendMessage(name, sourceEntity != null ? sourceEntity.getUUID().toString() : "0000000", new DiscordMessage(null, msg, !raw), DiscordIntegration.INSTANCE.getChannel(Configuration.instance().advanced.chatOutputChannelID));
+                DiscordIntegrationMod.outbound.send(OutboundScheduler.Category.CHAT, name, sourceEntity != null ? sourceEntity.getUUID().toString() : "0000000", null, msg, !raw, DiscordIntegration.INSTANCE.getChannel(Configuration.instance().advanced.chatOutputChannelID));
             }
 
             if (command.startsWith("discord ") || command.startsWith("dc ")) {
@@ -77,22 +82,22 @@ public class CommandManagerMixin {
                                     source.getPlayerOrException();
                                     source.sendFailure(Component.literal(Localization.instance().commands.consoleOnly));
                                 } catch (CommandSyntaxException e) {
-                                    final String txt = GsonComponentSerializer.gson().serialize(mcSubCommand.execute(cmdArgs, null));
-                                    source.sendSuccess(() -> Component.Serializer.fromJson(txt, VanillaRegistries.createLookup()), false);
+                                    final dcshadow.net.kyori.adventure.text.Component txt = mcSubCommand.execute(cmdArgs, null);
+                                    source.sendSuccess(() -> ComponentConverter.toMinecraft(txt, false), false);
                                 }
                                 break;
                             case PLAYER_ONLY:
                                 try {
                                     final ServerPlayer player = source.getPlayerOrException();
                                     if (!mcSubCommand.needsOP() && ((ArchitecturyServerInterface) DiscordIntegration.INSTANCE.getServerInterface()).playerHasPermissions(player, MinecraftPermission.RUN_DISCORD_COMMAND, MinecraftPermission.USER)) {
-                                        final String txt = GsonComponentSerializer.gson().serialize(mcSubCommand.execute(cmdArgs, player.getUUID()));
-                                        source.sendSuccess(() -> Component.Serializer.fromJson(txt, player.level().registryAccess()), false);
+                                        final dcshadow.net.kyori.adventure.text.Component txt = mcSubCommand.execute(cmdArgs, player.getUUID());
+                                        source.sendSuccess(() -> ComponentConverter.toMinecraft(txt, player.level().registryAccess()), false);
                                     } else if (((ArchitecturyServerInterface) DiscordIntegration.INSTANCE.getServerInterface()).playerHasPermissions(player, MinecraftPermission.RUN_DISCORD_COMMAND_ADMIN)) {
-                                        final String txt = GsonComponentSerializer.gson().serialize(mcSubCommand.execute(cmdArgs, player.getUUID()));
-                                        source.sendSuccess(() -> Component.Serializer.fromJson(txt, player.level().registryAccess()), false);
+                                        final dcshadow.net.kyori.adventure.text.Component txt = mcSubCommand.execute(cmdArgs, player.getUUID());
+                                        source.sendSuccess(() -> ComponentConverter.toMinecraft(txt, player.level().registryAccess()), false);
                                     } else if (source.hasPermission(4)) {
-                                        final String txt = GsonComponentSerializer.gson().serialize(mcSubCommand.execute(cmdArgs, player.getUUID()));
-                                        source.sendSuccess(() -> Component.Serializer.fromJson(txt, player.level().registryAccess()), false);
+                                        final dcshadow.net.kyori.adventure.text.Component txt = mcSubCommand.execute(cmdArgs, player.getUUID());
+                                        source.sendSuccess(() -> ComponentConverter.toMinecraft(txt, player.level().registryAccess()), false);
                                     } else {
                                         source.sendFailure(Component.literal(Localization.instance().commands.noPermission));
                                     }
@@ -105,20 +110,20 @@ public class CommandManagerMixin {
                                 try {
                                     final ServerPlayer player = source.getPlayerOrException();
                                     if (!mcSubCommand.needsOP() && ((ArchitecturyServerInterface) DiscordIntegration.INSTANCE.getServerInterface()).playerHasPermissions(player, MinecraftPermission.RUN_DISCORD_COMMAND, MinecraftPermission.USER)) {
-                                        final String txt = GsonComponentSerializer.gson().serialize(mcSubCommand.execute(cmdArgs, player.getUUID()));
-                                        source.sendSuccess(() -> Component.Serializer.fromJson(txt, VanillaRegistries.createLookup()), false);
+                                        final dcshadow.net.kyori.adventure.text.Component txt = mcSubCommand.execute(cmdArgs, player.getUUID());
+                                        source.sendSuccess(() -> ComponentConverter.toMinecraft(txt, false), false);
                                     } else if (((ArchitecturyServerInterface) DiscordIntegration.INSTANCE.getServerInterface()).playerHasPermissions(player, MinecraftPermission.RUN_DISCORD_COMMAND_ADMIN)) {
-                                        final String txt = GsonComponentSerializer.gson().serialize(mcSubCommand.execute(cmdArgs, player.getUUID()));
-                                        source.sendSuccess(() -> Component.Serializer.fromJson(txt, VanillaRegistries.createLookup()), false);
+                                        final dcshadow.net.kyori.adventure.text.Component txt = mcSubCommand.execute(cmdArgs, player.getUUID());
+                                        source.sendSuccess(() -> ComponentConverter.toMinecraft(txt, false), false);
                                     } else if (source.hasPermission(4)) {
-                                        final String txt = GsonComponentSerializer.gson().serialize(mcSubCommand.execute(cmdArgs, player.getUUID()));
-                                        source.sendSuccess(() -> Component.Serializer.fromJson(txt, VanillaRegistries.createLookup()), false);
+                                        final dcshadow.net.kyori.adventure.text.Component txt = mcSubCommand.execute(cmdArgs, player.getUUID());
+                                        source.sendSuccess(() -> ComponentConverter.toMinecraft(txt, false), false);
                                     } else {
                                         source.sendFailure(Component.literal(Localization.instance().commands.noPermission));
                                     }
                                 } catch (CommandSyntaxException e) {
-                                    final String txt = GsonComponentSerializer.gson().serialize(mcSubCommand.execute(cmdArgs, null));
-                                    source.sendSuccess(() -> Component.Serializer.fromJson(txt, VanillaRegistries.createLookup()), false);
+                                    final dcshadow.net.kyori.adventure.text.Component txt = mcSubCommand.execute(cmdArgs, null);
+                                    source.sendSuccess(() -> ComponentConverter.toMinecraft(txt, false), false);
                                 }
                                 break;
                         }
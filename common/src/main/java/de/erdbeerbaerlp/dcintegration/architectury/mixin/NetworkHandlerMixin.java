@@ -2,14 +2,18 @@ package de.erdbeerbaerlp.dcintegration.architectury.mixin;
 
 
 import de.erdbeerbaerlp.dcintegration.architectury.DiscordIntegrationMod;
-import de.erdbeerbaerlp.dcintegration.architectury.util.ArchitecturyMessageUtils;
+import de.erdbeerbaerlp.dcintegration.architectury.outbound.JoinLeaveAggregator;
+import de.erdbeerbaerlp.dcintegration.architectury.outbound.OutboundScheduler;
 import de.erdbeerbaerlp.dcintegration.architectury.util.MessageHistory;
+import de.erdbeerbaerlp.dcintegration.architectury.util.PlayerContext;
+import de.erdbeerbaerlp.dcintegration.architectury.util.template.EmbedTemplate;
+import de.erdbeerbaerlp.dcintegration.architectury.util.template.Placeholders;
+import de.erdbeerbaerlp.dcintegration.architectury.util.template.Template;
 import de.erdbeerbaerlp.dcintegration.common.DiscordIntegration;
 import de.erdbeerbaerlp.dcintegration.common.storage.Configuration;
 import de.erdbeerbaerlp.dcintegration.common.storage.Localization;
 import de.erdbeerbaerlp.dcintegration.common.storage.linking.LinkManager;
 import de.erdbeerbaerlp.dcintegration.common.util.DiscordMessage;
-import de.erdbeerbaerlp.dcintegration.common.util.TextColors;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.minecraft.network.DisconnectionDetails;
 import net.minecraft.network.chat.Component;
@@ -21,8 +25,6 @@ import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 
-import java.util.UUID;
-
 import static de.erdbeerbaerlp.dcintegration.common.DiscordIntegration.INSTANCE;
 
 @Mixin(value = ServerGamePacketListenerImpl.class)
@@ -35,6 +37,7 @@ public class NetworkHandlerMixin {
      */
     @Inject(method = "onDisconnect", at = @At("HEAD"))
     private void onDisconnect(DisconnectionDetails disconnectionDetails, CallbackInfo ci) {
+        final PlayerContext context = PlayerContext.leave(player);
         final Component reason = disconnectionDetails.reason();
         if (DiscordIntegrationMod.stopped) return; //Try to fix player leave messages after stop!
         if (LinkManager.isPlayerLinked(player.getUUID()) && LinkManager.getLink(null, player.getUUID()).settings.hideFromDiscord) {
@@ -44,37 +47,30 @@ public class NetworkHandlerMixin {
             DiscordIntegrationMod.timeouts.add(this.player.getUUID());
 
         INSTANCE.callEventC((a)->a.onPlayerLeave(player.getUUID()));
-        final String avatarURL = Configuration.instance().webhook.playerAvatarURL.replace("%uuid%", player.getUUID().toString()).replace("%uuid_dashless%", player.getUUID().toString().replace("-", "")).replace("%name%", player.getName().getString()).replace("%randomUUID%", UUID.randomUUID().toString());
+        final Placeholders placeholders = context.placeholders();
         if (DiscordIntegration.INSTANCE != null && !DiscordIntegrationMod.timeouts.contains(player.getUUID())) {
-            if (!Localization.instance().playerLeave.isBlank() && !DiscordIntegrationMod.history.checkDuplicate(player, "left").hasDuplicate()) {
+            if (!Localization.instance().playerLeave.isBlank() && !DiscordIntegrationMod.history.checkDuplicate(player, "left", MessageHistory.Category.JOIN_LEAVE).hasDuplicate() && !DiscordIntegrationMod.joinLeave.offer(JoinLeaveAggregator.Kind.LEFT, context.displayName())) {
                 if (Configuration.instance().embedMode.enabled && Configuration.instance().embedMode.playerLeaveMessages.asEmbed) {
                     if (!Configuration.instance().embedMode.playerLeaveMessages.customJSON.isBlank()) {
-                        final EmbedBuilder b = Configuration.instance().embedMode.playerLeaveMessages.toEmbedJson(Configuration.instance().embedMode.playerLeaveMessages.customJSON
-                                .replace("%uuid%", player.getUUID().toString())
-                                .replace("%uuid_dashless%", player.getUUID().toString().replace("-", ""))
-                                .replace("%name%", ArchitecturyMessageUtils.formatPlayerName(player))
-                                .replace("%randomUUID%", UUID.randomUUID().toString())
-                                .replace("%avatarURL%", avatarURL)
-                                .replace("%playerColor%", "" + TextColors.generateFromUUID(player.getUUID()).getRGB())
-                        );
-                        DiscordIntegration.INSTANCE.sendMessage(new DiscordMessage(b.build()),INSTANCE.getChannel(Configuration.instance().advanced.serverChannelID));
+                        final EmbedBuilder b = EmbedTemplate.of(EmbedTemplate.Kind.LEAVE).custom(placeholders);
+                        DiscordIntegrationMod.outbound.send(OutboundScheduler.Category.JOIN_LEAVE, new DiscordMessage(b.build()),INSTANCE.getChannel(Configuration.instance().advanced.serverChannelID));
                     } else {
-                        final EmbedBuilder b = Configuration.instance().embedMode.playerLeaveMessages.toEmbed().setAuthor(ArchitecturyMessageUtils.formatPlayerName(player), null, avatarURL)
-                                .setDescription(Localization.instance().playerLeave.replace("%player%", ArchitecturyMessageUtils.formatPlayerName(player)));
-                        DiscordIntegration.INSTANCE.sendMessage(new DiscordMessage(b.build()),INSTANCE.getChannel(Configuration.instance().advanced.serverChannelID));
+                        final EmbedBuilder b = EmbedTemplate.of(EmbedTemplate.Kind.LEAVE).embed().setAuthor(placeholders.get("name"), null, placeholders.get("avatarURL"))
+                                .setDescription(Template.render(Localization.instance().playerLeave, placeholders));
+                        DiscordIntegrationMod.outbound.send(OutboundScheduler.Category.JOIN_LEAVE, new DiscordMessage(b.build()),INSTANCE.getChannel(Configuration.instance().advanced.serverChannelID));
                     }
                 } else
-                    DiscordIntegration.INSTANCE.sendMessage(Localization.instance().playerLeave.replace("%player%", ArchitecturyMessageUtils.formatPlayerName(player)),INSTANCE.getChannel(Configuration.instance().advanced.serverChannelID));
+                    DiscordIntegrationMod.outbound.send(OutboundScheduler.Category.JOIN_LEAVE, Template.render(Localization.instance().playerLeave, placeholders),INSTANCE.getChannel(Configuration.instance().advanced.serverChannelID));
             }
         } else if (DiscordIntegration.INSTANCE != null && DiscordIntegrationMod.timeouts.contains(player.getUUID())) {
-            if (!Localization.instance().playerTimeout.isBlank() && !DiscordIntegrationMod.history.checkDuplicate(player, "left").hasDuplicate()) {
+            if (!Localization.instance().playerTimeout.isBlank() && !DiscordIntegrationMod.history.checkDuplicate(player, "left", MessageHistory.Category.JOIN_LEAVE).hasDuplicate() && !DiscordIntegrationMod.joinLeave.offer(JoinLeaveAggregator.Kind.LEFT, context.displayName())) {
                 if (Configuration.instance().embedMode.enabled && Configuration.instance().embedMode.playerLeaveMessages.asEmbed) {
-                    final EmbedBuilder b = Configuration.instance().embedMode.playerLeaveMessages.toEmbed()
-                            .setAuthor(ArchitecturyMessageUtils.formatPlayerName(player), null, avatarURL)
-                            .setDescription(Localization.instance().playerTimeout.replace("%player%", ArchitecturyMessageUtils.formatPlayerName(player)));
-                    DiscordIntegration.INSTANCE.sendMessage(new DiscordMessage(b.build()),INSTANCE.getChannel(Configuration.instance().advanced.serverChannelID));
+                    final EmbedBuilder b = EmbedTemplate.of(EmbedTemplate.Kind.LEAVE).embed()
+                            .setAuthor(placeholders.get("name"), null, placeholders.get("avatarURL"))
+                            .setDescription(Template.render(Localization.instance().playerTimeout, placeholders));
+                    DiscordIntegrationMod.outbound.send(OutboundScheduler.Category.JOIN_LEAVE, new DiscordMessage(b.build()),INSTANCE.getChannel(Configuration.instance().advanced.serverChannelID));
                 } else
-                    DiscordIntegration.INSTANCE.sendMessage(Localization.instance().playerTimeout.replace("%player%", ArchitecturyMessageUtils.formatPlayerName(player)),INSTANCE.getChannel(Configuration.instance().advanced.serverChannelID));
+                    DiscordIntegrationMod.outbound.send(OutboundScheduler.Category.JOIN_LEAVE, Template.render(Localization.instance().playerTimeout, placeholders),INSTANCE.getChannel(Configuration.instance().advanced.serverChannelID));
             }
             DiscordIntegrationMod.timeouts.remove(player.getUUID());
         }
@@ -2,9 +2,15 @@ package de.erdbeerbaerlp.dcintegration.architectury.mixin;
 
 import com.mojang.authlib.GameProfile;
 import dcshadow.net.kyori.adventure.text.Component;
-import dcshadow.net.kyori.adventure.text.serializer.gson.GsonComponentSerializer;
-import de.erdbeerbaerlp.dcintegration.architectury.util.ArchitecturyMessageUtils;
+import de.erdbeerbaerlp.dcintegration.architectury.outbound.JoinLeaveAggregator;
+import de.erdbeerbaerlp.dcintegration.architectury.outbound.OutboundScheduler;
+import de.erdbeerbaerlp.dcintegration.architectury.storage.NameCache;
+import de.erdbeerbaerlp.dcintegration.architectury.util.ComponentConverter;
 import de.erdbeerbaerlp.dcintegration.architectury.util.MessageHistory;
+import de.erdbeerbaerlp.dcintegration.architectury.util.PlayerContext;
+import de.erdbeerbaerlp.dcintegration.architectury.util.template.EmbedTemplate;
+import de.erdbeerbaerlp.dcintegration.architectury.util.template.Placeholders;
+import de.erdbeerbaerlp.dcintegration.architectury.util.template.Template;
 import de.erdbeerbaerlp.dcintegration.common.DiscordIntegration;
 import de.erdbeerbaerlp.dcintegration.architectury.DiscordIntegrationMod;
 import de.erdbeerbaerlp.dcintegration.common.WorkThread;
@@ -13,12 +19,10 @@ import de.erdbeerbaerlp.dcintegration.common.storage.Configuration;
 import de.erdbeerbaerlp.dcintegration.common.storage.Localization;
 import de.erdbeerbaerlp.dcintegration.common.storage.linking.LinkManager;
 import de.erdbeerbaerlp.dcintegration.common.util.DiscordMessage;
-import de.erdbeerbaerlp.dcintegration.common.util.TextColors;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.Role;
-import net.minecraft.data.registries.VanillaRegistries;
 import net.minecraft.network.Connection;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.server.network.CommonListenerCookie;
@@ -47,9 +51,8 @@ public class PlayerManagerMixin {
         LinkManager.checkGlobalAPI(profile.getId());
         final Component eventKick = INSTANCE.callEventO((e) -> e.onPlayerJoin(profile.getId()));
         if (eventKick != null) {
-            final String jsonComp = GsonComponentSerializer.gson().serialize(eventKick).replace("\\\\n", "\n");
             try {
-                final net.minecraft.network.chat.Component comp = net.minecraft.network.chat.Component.Serializer.fromJson(jsonComp, VanillaRegistries.createLookup());
+                final net.minecraft.network.chat.Component comp = ComponentConverter.toMinecraft(eventKick, true);
                 cir.setReturnValue(comp);
             } catch (Exception e) {
                 e.printStackTrace();
@@ -58,7 +61,7 @@ public class PlayerManagerMixin {
         if (Configuration.instance().linking.whitelistMode && DiscordIntegration.INSTANCE.getServerInterface().isOnlineMode()) {
             try {
                 if (!LinkManager.isPlayerLinked(profile.getId())) {
-                    cir.setReturnValue(net.minecraft.network.chat.Component.literal(Localization.instance().linking.notWhitelistedCode.replace("%code%", "" + (FloodgateUtils.isBedrockPlayer(profile.getId()) ? LinkManager.genBedrockLinkNumber(profile.getId()) : LinkManager.genLinkNumber(profile.getId())))));
+                    cir.setReturnValue(net.minecraft.network.chat.Component.literal(Template.render(Localization.instance().linking.notWhitelistedCode, new Placeholders().put("code", () -> "" + (FloodgateUtils.isBedrockPlayer(profile.getId()) ? LinkManager.genBedrockLinkNumber(profile.getId()) : LinkManager.genLinkNumber(profile.getId()))))));
                 } else if (!DiscordIntegration.INSTANCE.canPlayerJoin(profile.getId())) {
                     cir.setReturnValue(net.minecraft.network.chat.Component.literal(Localization.instance().linking.notWhitelistedRole));
                 }
@@ -71,31 +74,26 @@ public class PlayerManagerMixin {
 
     @Inject(at = @At(value = "TAIL"), method = "placeNewPlayer")
     private void onPlayerJoin(Connection connection, ServerPlayer p, CommonListenerCookie commonListenerCookie, CallbackInfo ci) {
+        NameCache.instance().put(p.getUUID(), p.getGameProfile().getName());
+        final PlayerContext context = PlayerContext.join(p);
         if (DiscordIntegration.INSTANCE != null) {
             if (LinkManager.isPlayerLinked(p.getUUID()) && LinkManager.getLink(null, p.getUUID()).settings.hideFromDiscord)
                 return;
             LinkManager.checkGlobalAPI(p.getUUID());
-            if (!Localization.instance().playerJoin.isBlank() && !DiscordIntegrationMod.history.checkDuplicate(p, "joined").hasDuplicate()) {
+            if (!Localization.instance().playerJoin.isBlank() && !DiscordIntegrationMod.history.checkDuplicate(p, "joined", MessageHistory.Category.JOIN_LEAVE).hasDuplicate() && !DiscordIntegrationMod.joinLeave.offer(JoinLeaveAggregator.Kind.JOINED, context.displayName())) {
+                final Placeholders placeholders = context.placeholders();
                 if (Configuration.instance().embedMode.enabled && Configuration.instance().embedMode.playerJoinMessage.asEmbed) {
-                    final String avatarURL = Configuration.instance().webhook.playerAvatarURL.replace("%uuid%", p.getUUID().toString()).replace("%uuid_dashless%", p.getUUID().toString().replace("-", "")).replace("%name%", p.getName().getString()).replace("%randomUUID%", UUID.randomUUID().toString());
                     if (!Configuration.instance().embedMode.playerJoinMessage.customJSON.isBlank()) {
-                        final EmbedBuilder b = Configuration.instance().embedMode.playerJoinMessage.toEmbedJson(Configuration.instance().embedMode.playerJoinMessage.customJSON
-                                .replace("%uuid%", p.getUUID().toString())
-                                .replace("%uuid_dashless%", p.getUUID().toString().replace("-", ""))
-                                .replace("%name%", ArchitecturyMessageUtils.formatPlayerName(p))
-                                .replace("%randomUUID%", UUID.randomUUID().toString())
-                                .replace("%avatarURL%", avatarURL)
-                                .replace("%playerColor%", "" + TextColors.generateFromUUID(p.getUUID()).getRGB())
-                        );
-                        DiscordIntegration.INSTANCE.sendMessage(new DiscordMessage(b.build()));
+                        final EmbedBuilder b = EmbedTemplate.of(EmbedTemplate.Kind.JOIN).custom(placeholders);
+                        DiscordIntegrationMod.outbound.send(OutboundScheduler.Category.JOIN_LEAVE, new DiscordMessage(b.build()), INSTANCE.getChannel());
                     } else {
-                        final EmbedBuilder b = Configuration.instance().embedMode.playerJoinMessage.toEmbed();
-                        b.setAuthor(ArchitecturyMessageUtils.formatPlayerName(p), null, avatarURL)
-                                .setDescription(Localization.instance().playerJoin.replace("%player%", ArchitecturyMessageUtils.formatPlayerName(p)));
-                        DiscordIntegration.INSTANCE.sendMessage(new DiscordMessage(b.build()), INSTANCE.getChannel(Configuration.instance().advanced.serverChannelID));
+                        final EmbedBuilder b = EmbedTemplate.of(EmbedTemplate.Kind.JOIN).embed();
+                        b.setAuthor(placeholders.get("name"), null, placeholders.get("avatarURL"))
+                                .setDescription(Template.render(Localization.instance().playerJoin, placeholders));
+                        DiscordIntegrationMod.outbound.send(OutboundScheduler.Category.JOIN_LEAVE, new DiscordMessage(b.build()), INSTANCE.getChannel(Configuration.instance().advanced.serverChannelID));
                     }
                 } else
-                    DiscordIntegration.INSTANCE.sendMessage(Localization.instance().playerJoin.replace("%player%", ArchitecturyMessageUtils.formatPlayerName(p)), INSTANCE.getChannel(Configuration.instance().advanced.serverChannelID));
+                    DiscordIntegrationMod.outbound.send(OutboundScheduler.Category.JOIN_LEAVE, Template.render(Localization.instance().playerJoin, placeholders), INSTANCE.getChannel(Configuration.instance().advanced.serverChannelID));
             }
             // Fix link status (if user does not have role, give the role to the user, or vice versa)
             WorkThread.executeJob(() -> {
@@ -1,26 +1,29 @@
 package de.erdbeerbaerlp.dcintegration.architectury.mixin;
 
 import de.erdbeerbaerlp.dcintegration.architectury.DiscordIntegrationMod;
+import de.erdbeerbaerlp.dcintegration.architectury.outbound.OutboundScheduler;
 import de.erdbeerbaerlp.dcintegration.architectury.util.ArchitecturyMessageUtils;
+import de.erdbeerbaerlp.dcintegration.architectury.util.MessageHistory;
+import de.erdbeerbaerlp.dcintegration.architectury.util.template.EmbedTemplate;
+import de.erdbeerbaerlp.dcintegration.architectury.util.template.Placeholders;
+import de.erdbeerbaerlp.dcintegration.architectury.util.template.Template;
 import de.erdbeerbaerlp.dcintegration.common.DiscordIntegration;
 import de.erdbeerbaerlp.dcintegration.common.storage.Configuration;
 import de.erdbeerbaerlp.dcintegration.common.storage.Localization;
 import de.erdbeerbaerlp.dcintegration.common.storage.linking.LinkManager;
 import de.erdbeerbaerlp.dcintegration.common.util.DiscordMessage;
-import de.erdbeerbaerlp.dcintegration.common.util.TextColors;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.entities.MessageEmbed;
 import net.minecraft.ChatFormatting;
 import net.minecraft.network.chat.Component;
 import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.entity.Entity;
 import net.minecraft.world.damagesource.DamageSource;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 
-import java.util.UUID;
-
 import static de.erdbeerbaerlp.dcintegration.common.DiscordIntegration.INSTANCE;
 
 @Mixin(ServerPlayer.class)
@@ -33,36 +36,37 @@ public class ServerPlayerMixin {
             if (LinkManager.isPlayerLinked(p.getUUID()) && LinkManager.getLink(null, p.getUUID()).settings.hideFromDiscord)
                 return;
             final Component deathMessage = s.getLocalizedDeathMessage(p);
-            final MessageEmbed embed = ArchitecturyMessageUtils.genItemStackEmbedIfAvailable(deathMessage, p.level());
-            if (!Localization.instance().playerDeath.isBlank() && !DiscordIntegrationMod.history.checkDuplicate(p, deathMessage.getString()).hasDuplicate())
-                if (Configuration.instance().embedMode.enabled && Configuration.instance().embedMode.deathMessage.asEmbed) {
-                    final String avatarURL = Configuration.instance().webhook.playerAvatarURL.replace("%uuid%", p.getUUID().toString()).replace("%uuid_dashless%", p.getUUID().toString().replace("-", "")).replace("%name%", p.getName().getString()).replace("%randomUUID%", UUID.randomUUID().toString());
-                    if(!Configuration.instance().embedMode.deathMessage.customJSON.isBlank()){
-                        final EmbedBuilder b = Configuration.instance().embedMode.deathMessage.toEmbedJson(Configuration.instance().embedMode.deathMessage.customJSON
-                                .replace("%uuid%", p.getUUID().toString())
-                                .replace("%uuid_dashless%", p.getUUID().toString().replace("-", ""))
-                                .replace("%name%", ArchitecturyMessageUtils.formatPlayerName(p))
-                                .replace("%randomUUID%", UUID.randomUUID().toString())
-                                .replace("%avatarURL%", avatarURL)
-                                .replace("%deathMessage%", ChatFormatting.stripFormatting(deathMessage.getString()).replace(ArchitecturyMessageUtils.formatPlayerName(p) + " ", ""))
-                                .replace("%playerColor%", ""+ TextColors.generateFromUUID(p.getUUID()).getRGB())
-                        );
-                        if (embed != null) {
-                            b.addBlankField(false);
-                            b.addField(embed.getTitle() + " *(" + embed.getFooter().getText() + ")*", embed.getDescription(), false);
-                        }
-                        DiscordIntegration.INSTANCE.sendMessage(new DiscordMessage(b.build()),INSTANCE.getChannel(Configuration.instance().advanced.deathsChannelID));
-                    }else {
-                        final EmbedBuilder b = Configuration.instance().embedMode.deathMessage.toEmbed();
-                        b.setDescription(":skull: " + Localization.instance().playerDeath.replace("%player%", ArchitecturyMessageUtils.formatPlayerName(p)).replace("%msg%", ChatFormatting.stripFormatting(deathMessage.getString()).replace(ArchitecturyMessageUtils.formatPlayerName(p) + " ", "")));
-                        if (embed != null) {
-                            b.addBlankField(false);
-                            b.addField(embed.getTitle() + " *(" + embed.getFooter().getText() + ")*", embed.getDescription(), false);
-                        }
-                        DiscordIntegration.INSTANCE.sendMessage(new DiscordMessage(b.build()), DiscordIntegration.INSTANCE.getChannel(Configuration.instance().advanced.deathsChannelID));
+            if (Localization.instance().playerDeath.isBlank() || DiscordIntegrationMod.history.checkDuplicate(p, deathMessage.getString(), MessageHistory.Category.DEATH).hasDuplicate())
+                return;
+            if (DiscordIntegrationMod.deaths.enabled()) {
+                final Entity killer = s.getEntity();
+                DiscordIntegrationMod.deaths.offer(p.getName().getString(), killer == null ? null : ChatFormatting.stripFormatting(killer.getName().getString()),
+                        s.getMsgId(), ChatFormatting.stripFormatting(deathMessage.getString()));
+                return;
+            }
+            final MessageEmbed embed = ArchitecturyMessageUtils.genItemStackEmbedIfAvailable(deathMessage);
+            final Placeholders placeholders = ArchitecturyMessageUtils.playerPlaceholders(p);
+            placeholders.put("deathMessage", () -> ChatFormatting.stripFormatting(deathMessage.getString()).replace(placeholders.get("name") + " ", ""))
+                    .put("msg", () -> placeholders.get("deathMessage"));
+            if (Configuration.instance().embedMode.enabled && Configuration.instance().embedMode.deathMessage.asEmbed) {
+                if(!Configuration.instance().embedMode.deathMessage.customJSON.isBlank()){
+                    final EmbedBuilder b = EmbedTemplate.of(EmbedTemplate.Kind.DEATH).custom(placeholders);
+                    if (embed != null) {
+                        b.addBlankField(false);
+                        b.addField(embed.getTitle() + " *(" + embed.getFooter().getText() + ")*", embed.getDescription(), false);
+                    }
+                    DiscordIntegrationMod.outbound.send(OutboundScheduler.Category.DEATH, new DiscordMessage(b.build()),INSTANCE.getChannel(Configuration.instance().advanced.deathsChannelID));
+                }else {
+                    final EmbedBuilder b = EmbedTemplate.of(EmbedTemplate.Kind.DEATH).embed();
+                    b.setDescription(":skull: " + Template.render(Localization.instance().playerDeath, placeholders));
+                    if (embed != null) {
+                        b.addBlankField(false);
+                        b.addField(embed.getTitle() + " *(" + embed.getFooter().getText() + ")*", embed.getDescription(), false);
                     }
-                } else
-                    DiscordIntegration.INSTANCE.sendMessage(new DiscordMessage(embed, Localization.instance().playerDeath.replace("%player%", ArchitecturyMessageUtils.formatPlayerName(p)).replace("%msg%",  ChatFormatting.stripFormatting(deathMessage.getString()).replace(ArchitecturyMessageUtils.formatPlayerName(p) + " ", ""))), DiscordIntegration.INSTANCE.getChannel(Configuration.instance().advanced.deathsChannelID));
+                    DiscordIntegrationMod.outbound.send(OutboundScheduler.Category.DEATH, new DiscordMessage(b.build()), DiscordIntegration.INSTANCE.getChannel(Configuration.instance().advanced.deathsChannelID));
+                }
+            } else
+                DiscordIntegrationMod.outbound.send(OutboundScheduler.Category.DEATH, new DiscordMessage(embed, Template.render(Localization.instance().playerDeath, placeholders)), DiscordIntegration.INSTANCE.getChannel(Configuration.instance().advanced.deathsChannelID));
         }
     }
 }
@@ -0,0 +1,43 @@
+package de.erdbeerbaerlp.dcintegration.architectury.mixin;
+
+import de.erdbeerbaerlp.dcintegration.architectury.util.accessors.StyleAccessor;
+import net.minecraft.network.chat.Style;
+import net.minecraft.resources.ResourceLocation;
+import org.spongepowered.asm.mixin.Final;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+
+@Mixin(Style.class)
+public class StyleMixin implements StyleAccessor {
+    @Shadow @Final Boolean bold;
+    @Shadow @Final Boolean italic;
+    @Shadow @Final Boolean underlined;
+    @Shadow @Final Boolean strikethrough;
+    @Shadow @Final Boolean obfuscated;
+    @Shadow @Final ResourceLocation font;
+
+
+    public Boolean discordIntegration$bold() {
+        return bold;
+    }
+
+    public Boolean discordIntegration$italic() {
+        return italic;
+    }
+
+    public Boolean discordIntegration$underlined() {
+        return underlined;
+    }
+
+    public Boolean discordIntegration$strikethrough() {
+        return strikethrough;
+    }
+
+    public Boolean discordIntegration$obfuscated() {
+        return obfuscated;
+    }
+
+    public ResourceLocation discordIntegration$font() {
+        return font;
+    }
+}
@@ -0,0 +1,161 @@
+package de.erdbeerbaerlp.dcintegration.architectury.outbound;
+
+import de.erdbeerbaerlp.dcintegration.architectury.DiscordIntegrationMod;
+import de.erdbeerbaerlp.dcintegration.architectury.storage.TuningConfig;
+import de.erdbeerbaerlp.dcintegration.architectury.util.PlayerContext;
+import de.erdbeerbaerlp.dcintegration.architectury.util.template.EmbedTemplate;
+import de.erdbeerbaerlp.dcintegration.architectury.util.template.Placeholders;
+import de.erdbeerbaerlp.dcintegration.architectury.util.template.Template;
+import de.erdbeerbaerlp.dcintegration.common.DiscordIntegration;
+import de.erdbeerbaerlp.dcintegration.common.storage.Configuration;
+import de.erdbeerbaerlp.dcintegration.common.storage.Localization;
+import de.erdbeerbaerlp.dcintegration.common.util.DiscordMessage;
+import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.entities.channel.middleman.GuildMessageChannel;
+import net.minecraft.ChatFormatting;
+import net.minecraft.advancements.AdvancementHolder;
+import net.minecraft.advancements.DisplayInfo;
+import net.minecraft.resources.ResourceLocation;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the advancements a player earns within a short window and announces them in one message.
+ * <p>
+ * A single advancement is announced exactly like before. Several become one combined message listing all of them.
+ * The stripped and URL-encoded title and description of an advancement are rendered once and reused for every player
+ * earning it, until a reload replaces its display info.
+ */
+public class AdvancementCoalescer {
+    private final Map<ResourceLocation, AdvancementText> texts = new ConcurrentHashMap<>();
+    private final Map<UUID, Pending> pending = new HashMap<>();
+
+    /**
+     * Rendered strings of one advancement
+     *
+     * @param display the display info they were rendered from, a reload replaces it
+     */
+    public record AdvancementText(DisplayInfo display, String name, String description, String nameURL, String descriptionURL) {
+        static AdvancementText of(DisplayInfo display) {
+            final String name = ChatFormatting.stripFormatting(display.getTitle().getString());
+            final String description = ChatFormatting.stripFormatting(display.getDescription().getString());
+            return new AdvancementText(display, name, description,
+                    URLEncoder.encode(name, StandardCharsets.UTF_8), URLEncoder.encode(description, StandardCharsets.UTF_8));
+        }
+
+        Placeholders addTo(Placeholders placeholders) {
+            return placeholders.put("advName", name)
+                    .put("advDesc", description)
+                    .put("advNameURL", nameURL)
+                    .put("advDescURL", descriptionURL);
+        }
+    }
+
+    private record Pending(PlayerContext player, List<AdvancementText> advancements) {
+    }
+
+    /**
+     * Announces the advancement, possibly together with others the player earns within the window. Call on the server thread.
+     */
+    public void offer(PlayerContext player, AdvancementHolder advancement, DisplayInfo display) {
+        final AdvancementText text = text(advancement.id(), display);
+        final long window = TuningConfig.instance().outbound.advancementWindowMillis;
+        if (window <= 0) {
+            send(player, List.of(text));
+            return;
+        }
+        synchronized (pending) {
+            final Pending existing = pending.get(player.uuid());
+            if (existing != null) {
+                existing.advancements().add(text);
+                return;
+            }
+            final List<AdvancementText> advancements = new ArrayList<>();
+            advancements.add(text);
+            pending.put(player.uuid(), new Pending(player, advancements));
+        }
+        OutboundTimer.get().schedule(() -> flush(player.uuid()), window, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Announces everything still collected
+     */
+    public void flush() {
+        final List<Pending> all;
+        synchronized (pending) {
+            all = new ArrayList<>(pending.values());
+            pending.clear();
+        }
+        for (Pending p : all)
+            send(p.player(), p.advancements());
+    }
+
+    public void clearCache() {
+        texts.clear();
+    }
+
+    private AdvancementText text(ResourceLocation id, DisplayInfo display) {
+        final AdvancementText cached = texts.get(id);
+        if (cached != null && cached.display() == display) return cached;
+        final AdvancementText text = AdvancementText.of(display);
+        texts.put(id, text);
+        return text;
+    }
+
+    private void flush(UUID player) {
+        final Pending p;
+        synchronized (pending) {
+            p = pending.remove(player);
+        }
+        if (p != null) send(p.player(), p.advancements());
+    }
+
+    private void send(PlayerContext player, List<AdvancementText> advancements) {
+        try {
+            if (DiscordIntegration.INSTANCE == null) return;
+            final GuildMessageChannel channel = DiscordIntegration.INSTANCE.getChannel(Configuration.instance().advanced.serverChannelID);
+            final Placeholders placeholders = player.placeholders();
+            final String description;
+            if (advancements.size() == 1) {
+                advancements.get(0).addTo(placeholders);
+                description = Template.multiline(Localization.instance().advancementMessage).render(placeholders);
+            } else {
+                final TuningConfig.Outbound config = TuningConfig.instance().outbound;
+                final Template line = Template.multiline(config.advancementCombinedLine);
+                final StringBuilder lines = new StringBuilder();
+                for (AdvancementText advancement : advancements) {
+                    if (!lines.isEmpty()) lines.append('\n');
+                    lines.append(line.render(advancement.addTo(new Placeholders())));
+                }
+                placeholders.put("count", String.valueOf(advancements.size()))
+                        .put("advancements", lines.toString())
+                        // custom embeds only know the single advancement placeholders
+                        .put("advName", advancements.size() + " advancements")
+                        .put("advDesc", lines.toString());
+                description = Template.multiline(config.advancementCombined).render(placeholders);
+            }
+            if (Configuration.instance().embedMode.enabled && Configuration.instance().embedMode.advancementMessage.asEmbed) {
+                if (!Configuration.instance().embedMode.advancementMessage.customJSON.isBlank()) {
+                    final EmbedBuilder b = EmbedTemplate.of(EmbedTemplate.Kind.ADVANCEMENT).custom(placeholders);
+                    DiscordIntegrationMod.outbound.send(OutboundScheduler.Category.ADVANCEMENT, new DiscordMessage(b.build()), channel);
+                } else {
+                    final EmbedBuilder b = EmbedTemplate.of(EmbedTemplate.Kind.ADVANCEMENT).embed()
+                            .setAuthor(player.displayName(), null, player.avatarURL())
+                            .setDescription(description);
+                    DiscordIntegrationMod.outbound.send(OutboundScheduler.Category.ADVANCEMENT, new DiscordMessage(b.build()), channel);
+                }
+            } else
+                DiscordIntegrationMod.outbound.send(OutboundScheduler.Category.ADVANCEMENT, description, channel);
+        } catch (Exception e) {
+            DiscordIntegration.LOGGER.error("Failed to announce advancements of " + player.name(), e);
+        }
+    }
+}
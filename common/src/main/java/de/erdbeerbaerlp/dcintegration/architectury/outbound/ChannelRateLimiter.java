@@ -0,0 +1,60 @@
+package de.erdbeerbaerlp.dcintegration.architectury.outbound;
+
+import de.erdbeerbaerlp.dcintegration.architectury.storage.TuningConfig;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Mirrors Discord's documented limits locally, so messages are held back, merged or summarized before a request would
+ * run into a 429 instead of piling up inside JDA afterwards.
+ * <p>
+ * Every target channel gets its own {@link TokenBucket} for message creation, all of them share one bucket for the
+ * global limit of the bot. A request is only accounted for if both allow it.
+ */
+public class ChannelRateLimiter implements OutboundScheduler.Pacer {
+    private final Map<String, TokenBucket> channels = new HashMap<>();
+    private final TokenBucket global;
+    private final int channelRequests;
+    private final long channelPeriodNanos;
+    private final LongSupplier clock;
+
+    public ChannelRateLimiter() {
+        this(TuningConfig.instance().outbound.rateLimits, System::nanoTime);
+    }
+
+    /**
+     * @param clock source of {@link System#nanoTime()}-like values, used by {@link #delay(String)}
+     */
+    public ChannelRateLimiter(TuningConfig.RateLimits limits, LongSupplier clock) {
+        this.channelRequests = limits.channelRequests;
+        this.channelPeriodNanos = TimeUnit.MILLISECONDS.toNanos(limits.channelPeriodMillis);
+        this.global = new TokenBucket(limits.globalRequests, TimeUnit.MILLISECONDS.toNanos(limits.globalPeriodMillis));
+        this.clock = clock;
+    }
+
+    @Override
+    public synchronized long reserve(String channelId, long now) {
+        final TokenBucket channel = bucket(channelId);
+        final long wait = Math.max(channel.delay(now), global.delay(now));
+        if (wait > 0) return wait;
+        channel.tryAcquire(now);
+        global.tryAcquire(now);
+        return 0;
+    }
+
+    /**
+     * @return nanoseconds until a request to the channel could be made, without taking it
+     */
+    @Override
+    public synchronized long delay(String channelId) {
+        final long now = clock.getAsLong();
+        return Math.max(bucket(channelId).delay(now), global.delay(now));
+    }
+
+    private TokenBucket bucket(String channelId) {
+        return channels.computeIfAbsent(channelId, id -> new TokenBucket(channelRequests, channelPeriodNanos));
+    }
+}
@@ -0,0 +1,132 @@
+package de.erdbeerbaerlp.dcintegration.architectury.outbound;
+
+import dcshadow.net.kyori.adventure.text.Component;
+import de.erdbeerbaerlp.dcintegration.architectury.DiscordIntegrationMod;
+import de.erdbeerbaerlp.dcintegration.architectury.storage.TuningConfig;
+import de.erdbeerbaerlp.dcintegration.architectury.util.ArchitecturyMessageUtils;
+import de.erdbeerbaerlp.dcintegration.architectury.util.ComponentConverter;
+import de.erdbeerbaerlp.dcintegration.architectury.util.PlayerContext;
+import de.erdbeerbaerlp.dcintegration.architectury.util.template.EmbedTemplate;
+import de.erdbeerbaerlp.dcintegration.architectury.util.template.Placeholders;
+import de.erdbeerbaerlp.dcintegration.common.DiscordIntegration;
+import de.erdbeerbaerlp.dcintegration.common.storage.Configuration;
+import de.erdbeerbaerlp.dcintegration.common.storage.Localization;
+import de.erdbeerbaerlp.dcintegration.common.util.DiscordMessage;
+import de.erdbeerbaerlp.dcintegration.common.util.MessageUtils;
+import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.dv8tion.jda.api.entities.channel.middleman.GuildMessageChannel;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Relays chat messages to Discord on a worker thread.
+ * <p>
+ * The chat hook only captures a {@link ChatSnapshot}; JSON conversion, the item embed, events, the duplicate check, embed
+ * building and markdown escaping all happen here, after vanilla already broadcast the message. Messages are relayed in
+ * the order they were sent. If the worker falls behind by more than the configured queue capacity, new messages are
+ * dropped and counted instead of blocking the server thread.
+ * <p>
+ * Plain-text lines go through a {@link MessageBatcher}, which merges bursts of the same player if enabled. Everything is
+ * then sent through the {@link OutboundScheduler} as chat, the most important category.
+ */
+public class ChatRelay {
+    private final AtomicLong dropped = new AtomicLong();
+    private final MessageBatcher batcher = new MessageBatcher((name, uuid, text, channel) ->
+            DiscordIntegrationMod.outbound.send(OutboundScheduler.Category.CHAT, name, uuid, null, text, true, channel),
+            channel -> DiscordIntegrationMod.outbound.delayNanos(channel));
+    private ThreadPoolExecutor executor;
+
+    public void submit(ChatSnapshot snapshot) {
+        final ThreadPoolExecutor worker = ensureStarted();
+        try {
+            worker.execute(() -> relay(snapshot));
+        } catch (RejectedExecutionException e) {
+            if (dropped.getAndIncrement() % 100 == 0)
+                DiscordIntegration.LOGGER.warn("Chat relay queue is full, dropped " + dropped.get() + " messages so far");
+        }
+    }
+
+    /**
+     * Relays everything still queued, then stops the worker. Submitting again starts a new one.
+     */
+    public synchronized void shutdown(long timeout, TimeUnit unit) {
+        if (executor == null) return;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeout, unit))
+                DiscordIntegration.LOGGER.warn("Chat relay did not finish within " + timeout + " " + unit.name().toLowerCase() + ", " + executor.getQueue().size() + " messages not relayed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor = null;
+        batcher.shutdown();
+        final MessageBatcher.Stats stats = batcher.stats();
+        if (stats.savedRequests() > 0)
+            DiscordIntegration.LOGGER.info(String.format("Chat batching merged %,d lines into %,d messages", stats.lines(), stats.messages()));
+    }
+
+    public long droppedMessages() {
+        return dropped.get();
+    }
+
+    public MessageBatcher.Stats batchStats() {
+        return batcher.stats();
+    }
+
+    private synchronized ThreadPoolExecutor ensureStarted() {
+        if (executor == null) {
+            executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(Math.max(1, TuningConfig.instance().outbound.chatQueueCapacity)), r -> {
+                final Thread thread = new Thread(r, "DiscordIntegration Chat Relay");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    private void relay(ChatSnapshot snapshot) {
+        try {
+            if (DiscordIntegration.INSTANCE == null) return;
+            final GuildMessageChannel channel = DiscordIntegration.INSTANCE.getChannel(Configuration.instance().advanced.chatOutputChannelID);
+            if (channel == null) return;
+            final String text = MessageUtils.escapeMarkdown(snapshot.content().getString());
+            final MessageEmbed embed = ArchitecturyMessageUtils.genItemStackEmbedIfAvailable(snapshot.content());
+            if (snapshot.checked() == null) {
+                final Component comp = ComponentConverter.toAdventure(snapshot.content(), snapshot.registries());
+                if (DiscordIntegration.INSTANCE.callEvent((e) -> e.onMinecraftMessage(comp, snapshot.player().uuid())))
+                    return;
+            }
+            if (Localization.instance().discordChatMessage.isBlank() || DiscordIntegrationMod.history.checkDuplicate(snapshot.historyEntry()).hasDuplicate())
+                return;
+            final PlayerContext player = snapshot.player();
+            final Placeholders placeholders = player.placeholders().put("msg", text);
+            if (Configuration.instance().embedMode.enabled && Configuration.instance().embedMode.chatMessages.asEmbed) {
+                if (!Configuration.instance().embedMode.chatMessages.customJSON.isBlank()) {
+                    final EmbedBuilder b = EmbedTemplate.of(EmbedTemplate.Kind.CHAT).custom(placeholders);
+                    final DiscordMessage message = new DiscordMessage(b.build());
+                    batcher.submitOrdered(channel, player.name(), () -> DiscordIntegrationMod.outbound.send(OutboundScheduler.Category.CHAT, message, channel));
+                } else {
+                    EmbedBuilder b = EmbedTemplate.of(EmbedTemplate.Kind.CHAT).embed();
+                    if (Configuration.instance().embedMode.chatMessages.generateUniqueColors)
+                        b = b.setColor(player.color());
+                    b = b.setAuthor(player.displayName(), null, player.avatarURL())
+                            .setDescription(text);
+                    final DiscordMessage message = new DiscordMessage(b.build());
+                    batcher.submitOrdered(channel, player.name(), () -> DiscordIntegrationMod.outbound.send(OutboundScheduler.Category.CHAT, message, channel));
+                }
+            } else if (embed == null) {
+                batcher.submit(player.displayName(), player.uuidString(), text, channel);
+            } else {
+                batcher.submitOrdered(channel, player.name(), () -> DiscordIntegrationMod.outbound.send(OutboundScheduler.Category.CHAT, player.displayName(), player.uuidString(), embed, text, true, channel));
+            }
+        } catch (Exception e) {
+            DiscordIntegration.LOGGER.error("Failed to relay chat message of " + snapshot.player().name(), e);
+        }
+    }
+}
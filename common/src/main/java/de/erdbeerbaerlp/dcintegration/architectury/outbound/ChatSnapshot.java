@@ -0,0 +1,25 @@
+package de.erdbeerbaerlp.dcintegration.architectury.outbound;
+
+import de.erdbeerbaerlp.dcintegration.architectury.util.MessageHistory;
+import de.erdbeerbaerlp.dcintegration.architectury.util.PlayerContext;
+import net.minecraft.core.RegistryAccess;
+import net.minecraft.network.chat.Component;
+
+/**
+ * Everything the Discord side of a chat message needs, captured on the server thread so the rest can run on the relay worker.
+ *
+ * @param player        session context of the sender, safe to read from other threads
+ * @param content       decorated chat component, components are immutable once sent
+ * @param registries    frozen registry access of the server, safe to read from other threads unlike the level
+ * @param historyEntry  duplicate history entry, built on the server thread while the player is still at hand
+ * @param checked       Adventure copy of the content if the cancel event already ran on the server thread, null if the
+ *                      relay still has to call it
+ */
+public record ChatSnapshot(
+        PlayerContext player,
+        Component content,
+        RegistryAccess registries,
+        MessageHistory.SimpleChatMessage historyEntry,
+        dcshadow.net.kyori.adventure.text.Component checked
+) {
+}
@@ -0,0 +1,82 @@
+package de.erdbeerbaerlp.dcintegration.architectury.outbound;
+
+import de.erdbeerbaerlp.dcintegration.architectury.DiscordIntegrationMod;
+import de.erdbeerbaerlp.dcintegration.architectury.storage.TuningConfig;
+import de.erdbeerbaerlp.dcintegration.architectury.util.template.Placeholders;
+import de.erdbeerbaerlp.dcintegration.architectury.util.template.Template;
+import de.erdbeerbaerlp.dcintegration.common.DiscordIntegration;
+import de.erdbeerbaerlp.dcintegration.common.storage.Configuration;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects logged commands and sends them as code blocks of many lines instead of one message per command.
+ * <p>
+ * Every line carries the time the command ran. A block is sent when the oldest line waited for the flush interval, when
+ * it holds the maximum number of lines, or when the next line would not fit into one Discord message. Blocks go through
+ * the command queue one after another, so lines arrive in the order the commands ran.
+ */
+public class CommandLogDigest {
+    private static final String OPEN = "```\n";
+    private static final String CLOSE = "\n```";
+    private static final int MAX_LENGTH = 2000 - OPEN.length() - CLOSE.length();
+
+    private final StringBuilder block = new StringBuilder();
+    private int lines;
+    private ScheduledFuture<?> flushTask;
+    private String timeFormat;
+    private DateTimeFormatter formatter;
+
+    public boolean enabled() {
+        return TuningConfig.instance().outbound.commandLogDigest.enabled;
+    }
+
+    public synchronized void offer(String sender, String command) {
+        final TuningConfig.CommandLogDigest config = TuningConfig.instance().outbound.commandLogDigest;
+        String line = Template.render(config.line, new Placeholders()
+                .put("time", () -> formatter(config.timeFormat).format(Instant.now()))
+                .put("sender", sender)
+                .put("cmd", command)
+                .put("cmd-no-args", command.split(" ")[0]))
+                // would end the code block early
+                .replace("```", "`\u200b``");
+        if (line.length() > MAX_LENGTH) line = line.substring(0, MAX_LENGTH - 3) + "...";
+        if (!block.isEmpty() && block.length() + 1 + line.length() > MAX_LENGTH) flush();
+        if (!block.isEmpty()) block.append('\n');
+        block.append(line);
+        lines++;
+        if (lines >= Math.max(1, config.maxLines)) flush();
+        else if (flushTask == null)
+            flushTask = OutboundTimer.get().schedule(this::flush, Math.max(0, config.flushIntervalMillis), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sends the collected lines
+     */
+    public synchronized void flush() {
+        if (flushTask != null) flushTask.cancel(false);
+        flushTask = null;
+        if (block.isEmpty()) return;
+        final String text = OPEN + block + CLOSE;
+        block.setLength(0);
+        lines = 0;
+        try {
+            if (DiscordIntegration.INSTANCE == null) return;
+            DiscordIntegrationMod.outbound.send(OutboundScheduler.Category.COMMAND, text, DiscordIntegration.INSTANCE.getChannel(Configuration.instance().commandLog.channelID));
+        } catch (Exception e) {
+            DiscordIntegration.LOGGER.error("Failed to send command log", e);
+        }
+    }
+
+    private DateTimeFormatter formatter(String pattern) {
+        if (!pattern.equals(timeFormat)) {
+            formatter = DateTimeFormatter.ofPattern(pattern).withZone(ZoneId.systemDefault());
+            timeFormat = pattern;
+        }
+        return formatter;
+    }
+}
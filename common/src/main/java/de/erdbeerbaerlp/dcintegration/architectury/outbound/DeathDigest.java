@@ -0,0 +1,148 @@
+package de.erdbeerbaerlp.dcintegration.architectury.outbound;
+
+import de.erdbeerbaerlp.dcintegration.architectury.DiscordIntegrationMod;
+import de.erdbeerbaerlp.dcintegration.architectury.storage.TuningConfig;
+import de.erdbeerbaerlp.dcintegration.architectury.util.template.EmbedTemplate;
+import de.erdbeerbaerlp.dcintegration.architectury.util.template.Placeholders;
+import de.erdbeerbaerlp.dcintegration.architectury.util.template.Template;
+import de.erdbeerbaerlp.dcintegration.common.DiscordIntegration;
+import de.erdbeerbaerlp.dcintegration.common.storage.Configuration;
+import de.erdbeerbaerlp.dcintegration.common.util.DiscordMessage;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.dv8tion.jda.api.entities.channel.middleman.GuildMessageChannel;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replaces single death messages with one summary per interval, for servers where players die every few seconds.
+ * <p>
+ * Deaths are only counted as they happen: per killer, per victim and per cause, plus the first message of every cause.
+ * A flush turns the counts into the top killers, the players that died most and the messages of the rarest causes, and
+ * sends that as one message, so the deaths channel costs at most one request per interval. Every table is capped, names
+ * past the cap are counted as "others".
+ */
+public class DeathDigest {
+    private static final String OTHERS = "others";
+    private static final int MAX_MESSAGE_LENGTH = 256;
+
+    private final Object2IntOpenHashMap<String> killers = new Object2IntOpenHashMap<>();
+    private final Object2IntOpenHashMap<String> victims = new Object2IntOpenHashMap<>();
+    private final Object2IntOpenHashMap<String> causes = new Object2IntOpenHashMap<>();
+    private final Map<String, String> messages = new HashMap<>();
+    private int deaths;
+    private ScheduledFuture<?> flushTask;
+
+    public boolean enabled() {
+        return TuningConfig.instance().outbound.deathDigest.enabled;
+    }
+
+    /**
+     * Counts a death for the next summary
+     *
+     * @param killer name of the killer, null if nobody killed the player
+     * @param cause  id of the damage type, deaths with the same cause are told apart only by their count
+     */
+    public synchronized void offer(String victim, String killer, String cause, String message) {
+        final TuningConfig.DeathDigest config = TuningConfig.instance().outbound.deathDigest;
+        deaths++;
+        count(victims, victim, config.maxTracked);
+        if (killer != null) count(killers, killer, config.maxTracked);
+        if (count(causes, cause, config.maxTracked) && !messages.containsKey(cause))
+            messages.put(cause, message.length() > MAX_MESSAGE_LENGTH ? message.substring(0, MAX_MESSAGE_LENGTH - 3) + "..." : message);
+        if (flushTask == null) {
+            final long interval = Math.max(10_000, config.intervalMillis);
+            flushTask = OutboundTimer.get().scheduleAtFixedRate(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Sends the summary of the deaths since the last one, stops the timer if there were none
+     */
+    public synchronized void flush() {
+        try {
+            if (deaths == 0) {
+                if (flushTask != null) flushTask.cancel(false);
+                flushTask = null;
+                return;
+            }
+            final TuningConfig.DeathDigest config = TuningConfig.instance().outbound.deathDigest;
+            final String text = render(config);
+            clear();
+            if (DiscordIntegration.INSTANCE == null) return;
+            final GuildMessageChannel channel = DiscordIntegration.INSTANCE.getChannel(Configuration.instance().advanced.deathsChannelID);
+            if (Configuration.instance().embedMode.enabled && Configuration.instance().embedMode.deathMessage.asEmbed)
+                DiscordIntegrationMod.outbound.send(OutboundScheduler.Category.DEATH, new DiscordMessage(EmbedTemplate.of(EmbedTemplate.Kind.DEATH).embed().setDescription(text).build()), channel);
+            else
+                DiscordIntegrationMod.outbound.send(OutboundScheduler.Category.DEATH, text, channel);
+        } catch (Exception e) {
+            DiscordIntegration.LOGGER.error("Failed to send death summary", e);
+        }
+    }
+
+    private String render(TuningConfig.DeathDigest config) {
+        final long interval = Math.max(10_000, config.intervalMillis);
+        final StringBuilder out = new StringBuilder(Template.render(config.header, new Placeholders()
+                .put("count", String.format("%,d", deaths))
+                .put("period", interval % 60_000 == 0 ? interval / 60_000 + " min" : interval / 1000 + " s")));
+        section(out, config.topKillers, "killers", top(killers, config.listedNames));
+        section(out, config.mostDeaths, "victims", top(victims, config.listedNames));
+        final List<String> notable = new ArrayList<>();
+        for (Object2IntMap.Entry<String> cause : sorted(causes, Comparator.comparingInt(Object2IntMap.Entry::getIntValue))) {
+            if (notable.size() >= config.notableMessages) break;
+            final String message = messages.get(cause.getKey());
+            if (message != null) notable.add("> " + message);
+        }
+        section(out, config.notable, "messages", String.join("\n", notable));
+        // the smaller of Discord's message and embed description limits
+        return out.length() > 2000 ? out.substring(0, 1997) + "..." : out.toString();
+    }
+
+    private static void section(StringBuilder out, String template, String key, String value) {
+        if (value.isEmpty() || template.isBlank()) return;
+        out.append('\n').append(Template.multiline(template).render(new Placeholders().put(key, value)));
+    }
+
+    private static String top(Object2IntOpenHashMap<String> counts, int limit) {
+        final StringBuilder out = new StringBuilder();
+        int listed = 0;
+        for (Object2IntMap.Entry<String> e : sorted(counts, Comparator.comparingInt(Object2IntMap.Entry<String>::getIntValue).reversed())) {
+            if (listed++ >= limit) break;
+            if (!out.isEmpty()) out.append(", ");
+            out.append(e.getKey()).append(" (").append(e.getIntValue()).append(')');
+        }
+        return out.toString();
+    }
+
+    private static List<Object2IntMap.Entry<String>> sorted(Object2IntOpenHashMap<String> counts, Comparator<Object2IntMap.Entry<String>> order) {
+        final List<Object2IntMap.Entry<String>> entries = new ArrayList<>(counts.object2IntEntrySet());
+        entries.sort(order);
+        return entries;
+    }
+
+    /**
+     * @return false if the key was counted as "others" because the table is full
+     */
+    private static boolean count(Object2IntOpenHashMap<String> counts, String key, int maxTracked) {
+        if (counts.size() >= maxTracked && !counts.containsKey(key)) {
+            counts.addTo(OTHERS, 1);
+            return false;
+        }
+        counts.addTo(key, 1);
+        return true;
+    }
+
+    private void clear() {
+        killers.clear();
+        victims.clear();
+        causes.clear();
+        messages.clear();
+        deaths = 0;
+    }
+}
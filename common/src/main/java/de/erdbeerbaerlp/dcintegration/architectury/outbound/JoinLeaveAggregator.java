@@ -0,0 +1,123 @@
+package de.erdbeerbaerlp.dcintegration.architectury.outbound;
+
+import de.erdbeerbaerlp.dcintegration.architectury.DiscordIntegrationMod;
+import de.erdbeerbaerlp.dcintegration.architectury.storage.TuningConfig;
+import de.erdbeerbaerlp.dcintegration.architectury.util.template.EmbedTemplate;
+import de.erdbeerbaerlp.dcintegration.architectury.util.template.Placeholders;
+import de.erdbeerbaerlp.dcintegration.architectury.util.template.Template;
+import de.erdbeerbaerlp.dcintegration.common.DiscordIntegration;
+import de.erdbeerbaerlp.dcintegration.common.storage.Configuration;
+import de.erdbeerbaerlp.dcintegration.common.util.DiscordMessage;
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import net.dv8tion.jda.api.entities.channel.middleman.GuildMessageChannel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turns join and leave messages into periodic summaries while many players join or leave at once, like after a restart.
+ * <p>
+ * Every join and leave is counted in a sliding window. Once the count reaches the configured threshold, new events are
+ * collected instead of sent and a summary per kind ("37 players joined: ...") goes out every summary interval. The storm
+ * ends at a summary where the window holds less than half the threshold, from then on messages are sent one by one again.
+ */
+public class JoinLeaveAggregator {
+    private final LongArrayFIFOQueue events = new LongArrayFIFOQueue();
+    private final List<String> joined = new ArrayList<>();
+    private final List<String> left = new ArrayList<>();
+    private ScheduledFuture<?> flushTask;
+    private boolean storm;
+    private boolean stopped;
+
+    public enum Kind {
+        JOINED, LEFT
+    }
+
+    /**
+     * Counts a join or leave
+     *
+     * @return true if it was taken into a summary, false if the message should be sent as usual
+     */
+    public synchronized boolean offer(Kind kind, String playerName) {
+        final TuningConfig.JoinLeaveStorm config = TuningConfig.instance().outbound.joinLeaveStorm;
+        if (stopped || config.threshold <= 0) return false;
+        final long now = System.nanoTime();
+        events.enqueue(now);
+        evict(now, config);
+        if (!storm && events.size() >= config.threshold) {
+            storm = true;
+            final long interval = Math.max(1000, config.summaryIntervalMillis);
+            flushTask = OutboundTimer.get().scheduleAtFixedRate(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+            DiscordIntegration.LOGGER.info("Many players are joining or leaving, sending summaries instead of single messages");
+        }
+        if (!storm) return false;
+        (kind == Kind.JOINED ? joined : left).add(playerName);
+        return true;
+    }
+
+    /**
+     * Sends pending summaries, ending the storm if the rate dropped
+     */
+    public synchronized void flush() {
+        try {
+            final TuningConfig.JoinLeaveStorm config = TuningConfig.instance().outbound.joinLeaveStorm;
+            send(Kind.JOINED, joined, config.joinedSummary, config);
+            send(Kind.LEFT, left, config.leftSummary, config);
+            evict(System.nanoTime(), config);
+            if (storm && events.size() * 2 < config.threshold) {
+                storm = false;
+                if (flushTask != null) flushTask.cancel(false);
+                flushTask = null;
+            }
+        } catch (Exception e) {
+            DiscordIntegration.LOGGER.error("Failed to send join/leave summary", e);
+        }
+    }
+
+    /**
+     * Sends pending summaries and passes every later join and leave through until {@link #start}. Used while the server
+     * stops, the players kicked then would otherwise start a storm that is only summarized after JDA is gone.
+     */
+    public synchronized void stop() {
+        stopped = true;
+        flush();
+        storm = false;
+        events.clear();
+        if (flushTask != null) flushTask.cancel(false);
+        flushTask = null;
+    }
+
+    /**
+     * Collects storms again after {@link #stop}
+     */
+    public synchronized void start() {
+        stopped = false;
+    }
+
+    private void send(Kind kind, List<String> players, String template, TuningConfig.JoinLeaveStorm config) {
+        if (players.isEmpty()) return;
+        final int listed = Math.min(players.size(), Math.max(0, config.maxListedPlayers));
+        final StringBuilder names = new StringBuilder(String.join(", ", players.subList(0, listed)));
+        if (listed < players.size()) names.append(listed == 0 ? "" : ", ").append("+").append(players.size() - listed);
+        final String text = Template.render(template, new Placeholders()
+                .put("count", String.valueOf(players.size()))
+                .put("players", names.toString()));
+        players.clear();
+        if (DiscordIntegration.INSTANCE == null) return;
+        final GuildMessageChannel channel = DiscordIntegration.INSTANCE.getChannel(Configuration.instance().advanced.serverChannelID);
+        final var embed = kind == Kind.JOINED ? Configuration.instance().embedMode.playerJoinMessage : Configuration.instance().embedMode.playerLeaveMessages;
+        if (Configuration.instance().embedMode.enabled && embed.asEmbed)
+            DiscordIntegrationMod.outbound.send(OutboundScheduler.Category.JOIN_LEAVE, new DiscordMessage(EmbedTemplate.of(kind == Kind.JOINED ? EmbedTemplate.Kind.JOIN : EmbedTemplate.Kind.LEAVE).embed()
+                    .setDescription(text).build()), channel);
+        else
+            DiscordIntegrationMod.outbound.send(OutboundScheduler.Category.JOIN_LEAVE, text, channel);
+    }
+
+    private void evict(long now, TuningConfig.JoinLeaveStorm config) {
+        final long window = TimeUnit.MILLISECONDS.toNanos(config.windowMillis);
+        while (!events.isEmpty() && now - events.firstLong() > window)
+            events.dequeueLong();
+    }
+}
@@ -0,0 +1,237 @@
+package de.erdbeerbaerlp.dcintegration.architectury.outbound;
+
+import de.erdbeerbaerlp.dcintegration.architectury.storage.TuningConfig;
+import de.erdbeerbaerlp.dcintegration.common.DiscordIntegration;
+import net.dv8tion.jda.api.entities.channel.middleman.GuildMessageChannel;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+
+/**
+ * Merges consecutive plain-text lines of the same sender in the same channel into one Discord message.
+ * <p>
+ * A batch is sent once its window, counted from its first line, ended, or as soon as the next line would push it past the
+ * maximum length. A line of another sender, or a line that cannot be batched, sends the pending batch of the channel
+ * first, so Discord still shows everything in the order it was written. Ready messages get a sequence number under the
+ * batcher's lock and are handed to the sender outside of it, one thread at a time in sequence order, so a sender that
+ * waits for room in its queue never holds up threads submitting lines.
+ * <p>
+ * While the channel is rate limited, a batch whose window ended keeps collecting lines until the channel is free again,
+ * for at most outbound.batchMaxDelayMillis.
+ */
+public class MessageBatcher {
+    private final Sender sender;
+    private final ToLongFunction<GuildMessageChannel> channelDelay;
+    private final Map<String, Batch> pending = new HashMap<>();
+    private final AtomicLong lines = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final ArrayDeque<Delivery> ready = new ArrayDeque<>();
+    private final AtomicBoolean delivering = new AtomicBoolean();
+    private long nextSeq;
+    private ScheduledExecutorService timer;
+
+    @FunctionalInterface
+    public interface Sender {
+        void send(String senderName, String senderUUID, String text, GuildMessageChannel channel);
+    }
+
+    public record Stats(long lines, long messages) {
+        /**
+         * REST requests that were not needed because lines were merged
+         */
+        public long savedRequests() {
+            return lines - messages;
+        }
+    }
+
+    private record Delivery(long seq, String senderName, Runnable send) {
+    }
+
+    private static final class Batch {
+        final String senderName;
+        final String senderUUID;
+        final GuildMessageChannel channel;
+        final StringBuilder text = new StringBuilder();
+        final long createdAt = System.nanoTime();
+        int lines;
+
+        Batch(String senderName, String senderUUID, GuildMessageChannel channel) {
+            this.senderName = senderName;
+            this.senderUUID = senderUUID;
+            this.channel = channel;
+        }
+    }
+
+    /**
+     * @param channelDelay nanoseconds until the channel accepts the next request, a batch keeps collecting lines meanwhile
+     */
+    public MessageBatcher(Sender sender, ToLongFunction<GuildMessageChannel> channelDelay) {
+        this.sender = sender;
+        this.channelDelay = channelDelay;
+    }
+
+    /**
+     * Sends the line as part of a batch, or right away if batching is disabled or the line is too long to share a message
+     */
+    public void submit(String senderName, String senderUUID, String text, GuildMessageChannel channel) {
+        synchronized (this) {
+            collect(senderName, senderUUID, text, channel);
+        }
+        deliver();
+    }
+
+    /**
+     * Runs the send action after the pending batch of the channel and everything else submitted before, to be used for
+     * messages of the channel that cannot be batched
+     */
+    public void submitOrdered(GuildMessageChannel channel, String senderName, Runnable send) {
+        synchronized (this) {
+            release(channel);
+            enqueue(senderName, send);
+        }
+        deliver();
+    }
+
+    /**
+     * Sends the pending batch of the channel
+     */
+    public void flush(GuildMessageChannel channel) {
+        synchronized (this) {
+            release(channel);
+        }
+        deliver();
+    }
+
+    /**
+     * Sends every pending batch and stops the timer, submitting again starts a new one
+     */
+    public void shutdown() {
+        synchronized (this) {
+            for (Batch batch : new ArrayList<>(pending.values()))
+                enqueue(batch);
+            pending.clear();
+            if (timer != null) {
+                timer.shutdownNow();
+                timer = null;
+            }
+        }
+        deliver();
+    }
+
+    public Stats stats() {
+        return new Stats(lines.get(), sent.get());
+    }
+
+    private void collect(String senderName, String senderUUID, String text, GuildMessageChannel channel) {
+        final TuningConfig.Outbound config = TuningConfig.instance().outbound;
+        final int maxLength = Math.min(2000, config.batchMaxLength);
+        if (!config.batchChat || config.batchWindowMillis <= 0 || text.length() >= maxLength) {
+            release(channel);
+            enqueue(senderName, senderUUID, text, channel, 1);
+            return;
+        }
+        Batch batch = pending.get(channel.getId());
+        if (batch != null && (!batch.senderUUID.equals(senderUUID) || batch.text.length() + 1 + text.length() > maxLength)) {
+            release(channel);
+            batch = null;
+        }
+        if (batch == null) {
+            batch = new Batch(senderName, senderUUID, channel);
+            pending.put(channel.getId(), batch);
+            schedule(batch, TimeUnit.MILLISECONDS.toNanos(config.batchWindowMillis));
+        } else {
+            batch.text.append('\n');
+        }
+        batch.text.append(text);
+        batch.lines++;
+    }
+
+    private void release(GuildMessageChannel channel) {
+        final Batch batch = pending.remove(channel.getId());
+        if (batch != null) enqueue(batch);
+    }
+
+    private void schedule(Batch batch, long delayNanos) {
+        ensureStarted().schedule(() -> flush(batch), delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void flush(Batch batch) {
+        synchronized (this) {
+            // the batch may already have been sent because it filled up or another sender wrote in between
+            if (pending.get(batch.channel.getId()) != batch) return;
+            // sending now would only wait for the rate limit, keep collecting until the channel is free again
+            final long wait = channelDelay.applyAsLong(batch.channel);
+            final long held = System.nanoTime() - batch.createdAt;
+            if (wait > 0 && held + wait <= TimeUnit.MILLISECONDS.toNanos(TuningConfig.instance().outbound.batchMaxDelayMillis)) {
+                schedule(batch, wait);
+                return;
+            }
+            pending.remove(batch.channel.getId());
+            enqueue(batch);
+        }
+        deliver();
+    }
+
+    private void enqueue(Batch batch) {
+        enqueue(batch.senderName, batch.senderUUID, batch.text.toString(), batch.channel, batch.lines);
+    }
+
+    private void enqueue(String senderName, String senderUUID, String text, GuildMessageChannel channel, int lineCount) {
+        lines.addAndGet(lineCount);
+        sent.incrementAndGet();
+        enqueue(senderName, () -> sender.send(senderName, senderUUID, text, channel));
+    }
+
+    private void enqueue(String senderName, Runnable send) {
+        ready.add(new Delivery(nextSeq++, senderName, send));
+    }
+
+    /**
+     * Hands ready messages to the sender without holding the lock. Only one thread delivers at a time, the others return
+     * right away and leave their messages to it, which keeps the sequence order.
+     */
+    private void deliver() {
+        while (delivering.compareAndSet(false, true)) {
+            try {
+                Delivery delivery;
+                while ((delivery = poll()) != null) {
+                    try {
+                        delivery.send().run();
+                    } catch (Exception e) {
+                        DiscordIntegration.LOGGER.error("Failed to send chat message " + delivery.seq() + " of " + delivery.senderName(), e);
+                    }
+                }
+            } finally {
+                delivering.set(false);
+            }
+            // a message queued after the last poll but before the flag was cleared has no one else to deliver it
+            synchronized (this) {
+                if (ready.isEmpty()) return;
+            }
+        }
+    }
+
+    private synchronized Delivery poll() {
+        return ready.poll();
+    }
+
+    private ScheduledExecutorService ensureStarted() {
+        if (timer == null) {
+            timer = Executors.newSingleThreadScheduledExecutor(r -> {
+                final Thread thread = new Thread(r, "DiscordIntegration Message Batcher");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return timer;
+    }
+}
@@ -0,0 +1,22 @@
+package de.erdbeerbaerlp.dcintegration.architectury.outbound;
+
+import net.dv8tion.jda.api.entities.channel.middleman.GuildMessageChannel;
+
+import java.util.function.Supplier;
+
+/**
+ * A message waiting in the {@link OutboundScheduler}
+ *
+ * @param channel    target channel, may be null if it is not configured, the send action then decides what happens
+ * @param send       issues the actual request, called on the dispatcher thread
+ * @param queuedAt   {@link System#nanoTime()} when the message was queued
+ * @param spooled    sequence numbers in the {@link OutboundSpool} this message stands for, empty if it is not on disk
+ * @param entry      creates the spool entry if the message has to be written to disk, null if it cannot be spooled
+ */
+public record OutboundMessage(OutboundScheduler.Category category, GuildMessageChannel channel, Runnable send, long queuedAt, long[] spooled, Supplier<SpoolEntry> entry) {
+    static final long[] NOT_SPOOLED = new long[0];
+
+    public String channelId() {
+        return channel == null ? "" : channel.getId();
+    }
+}
@@ -0,0 +1,443 @@
+package de.erdbeerbaerlp.dcintegration.architectury.outbound;
+
+import de.erdbeerbaerlp.dcintegration.architectury.storage.TuningConfig;
+import de.erdbeerbaerlp.dcintegration.architectury.util.template.Placeholders;
+import de.erdbeerbaerlp.dcintegration.architectury.util.template.Template;
+import de.erdbeerbaerlp.dcintegration.common.DiscordIntegration;
+import de.erdbeerbaerlp.dcintegration.common.util.DiscordMessage;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.dv8tion.jda.api.entities.channel.middleman.GuildMessageChannel;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Sends Discord messages of the mixins by priority instead of in the order they were produced.
+ * <p>
+ * Every {@link Category} has its own bounded queue. A dispatcher thread always sends the head of the most important
+ * queue whose channel the {@link Pacer} allows a request for, so a flood of logged commands waits behind chat instead of
+ * in front of it. By default the pacer is a {@link ChannelRateLimiter}. What happens when a queue is full is configured per category, see {@link OverflowPolicy}.
+ * <p>
+ * With an {@link OutboundSpool} set, messages whose turn comes while Discord is unreachable are written to the spool by
+ * the dispatcher instead of sent, and so are messages still queued when {@link #shutdown} gives up waiting. The
+ * {@link SpoolReplayer} sends them later. Threads producing messages never touch the disk.
+ */
+public class OutboundScheduler {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final EnumMap<Category, ArrayDeque<OutboundMessage>> queues = new EnumMap<>(Category.class);
+    private final EnumMap<Category, Map<String, Summary>> summaries = new EnumMap<>(Category.class);
+    private final EnumMap<Category, Counters> counters = new EnumMap<>(Category.class);
+    private final Pacer pacer;
+    private volatile OutboundSpool spool;
+    private volatile BooleanSupplier mayBlock = () -> true;
+    private Thread dispatcher;
+    private boolean running;
+    /** Set by {@link #shutdown} until {@link #start}, messages then go to JDA right away */
+    private boolean stopped;
+
+    /**
+     * Traffic categories, in order of priority
+     */
+    public enum Category {
+        CHAT, JOIN_LEAVE, DEATH, ADVANCEMENT, COMMAND;
+
+        TuningConfig.Queue config() {
+            final TuningConfig.Queues queues = TuningConfig.instance().outbound.queues;
+            return switch (this) {
+                case CHAT -> queues.chat;
+                case JOIN_LEAVE -> queues.joinLeave;
+                case DEATH -> queues.death;
+                case ADVANCEMENT -> queues.advancement;
+                case COMMAND -> queues.command;
+            };
+        }
+    }
+
+    public enum OverflowPolicy {
+        /** Drop the oldest queued message to make room */
+        DROP_OLDEST,
+        /** Drop the new message and send one summary with the number of dropped messages once the queue drained */
+        SUMMARIZE,
+        /** Wait for room for up to outbound.blockTimeoutMillis, then drop the new message. Acts like DROP_OLDEST on threads that may not block, see {@link #mayBlock(BooleanSupplier)} */
+        BLOCK
+    }
+
+    /**
+     * Decides when the next request to a channel may be issued
+     */
+    @FunctionalInterface
+    public interface Pacer {
+        /**
+         * @return 0 if a request to the channel may be issued now, it is then accounted for, otherwise nanoseconds to wait
+         */
+        long reserve(String channelId, long nowNanos);
+
+        /**
+         * @return nanoseconds until a request to the channel would be allowed, without accounting for one
+         */
+        default long delay(String channelId) {
+            return 0;
+        }
+    }
+
+    public record Stats(Category category, long sent, long dropped, long summarized, double averageWaitMillis, double maxWaitMillis) {
+    }
+
+    private static final class Summary {
+        final GuildMessageChannel channel;
+        long count;
+
+        Summary(GuildMessageChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    private static final class Counters {
+        final AtomicLong sent = new AtomicLong();
+        final AtomicLong dropped = new AtomicLong();
+        final AtomicLong summarized = new AtomicLong();
+        final AtomicLong waitNanos = new AtomicLong();
+        final AtomicLong maxWaitNanos = new AtomicLong();
+    }
+
+    public OutboundScheduler() {
+        this(new ChannelRateLimiter());
+    }
+
+    public OutboundScheduler(Pacer pacer) {
+        this.pacer = pacer;
+        for (Category category : Category.values()) {
+            queues.put(category, new ArrayDeque<>());
+            summaries.put(category, new LinkedHashMap<>());
+            counters.put(category, new Counters());
+        }
+    }
+
+    /**
+     * @return nanoseconds until the pacer would allow a request to the channel, 0 if it would now
+     */
+    public long delayNanos(GuildMessageChannel channel) {
+        return pacer.delay(channel == null ? "" : channel.getId());
+    }
+
+    /**
+     * Writes messages that cannot be sent to the spool from now on, null stops spooling
+     */
+    public void spool(OutboundSpool spool) {
+        this.spool = spool;
+    }
+
+    /**
+     * Decides whether the submitting thread may wait with the BLOCK policy, it has to be false on the server thread
+     */
+    public void mayBlock(BooleanSupplier mayBlock) {
+        this.mayBlock = mayBlock;
+    }
+
+    public void send(Category category, DiscordMessage message, GuildMessageChannel channel) {
+        submit(category, channel, () -> DiscordIntegration.INSTANCE.sendMessage(message, channel), OutboundMessage.NOT_SPOOLED,
+                channel == null ? null : () -> SpoolEntry.of(category, channel.getId(), message));
+    }
+
+    public void send(Category category, String message, GuildMessageChannel channel) {
+        submit(category, channel, () -> DiscordIntegration.INSTANCE.sendMessage(message, channel), OutboundMessage.NOT_SPOOLED,
+                channel == null ? null : () -> SpoolEntry.of(category, channel.getId(), message));
+    }
+
+    /**
+     * Sends as the given player or server name, through the webhook if enabled. The message is built here, so the spool
+     * keeps the same flags the live send used.
+     *
+     * @param notRaw see {@link DiscordMessage#DiscordMessage(MessageEmbed, String, boolean)}
+     */
+    public void send(Category category, String senderName, String senderUUID, MessageEmbed embed, String text, boolean notRaw, GuildMessageChannel channel) {
+        final DiscordMessage message = new DiscordMessage(embed, text, notRaw);
+        submit(category, channel, () -> DiscordIntegration.INSTANCE.sendMessage(senderName, senderUUID, message, channel), OutboundMessage.NOT_SPOOLED,
+                channel == null ? null : () -> SpoolEntry.of(category, channel.getId(), senderName, senderUUID, embed, text, notRaw));
+    }
+
+    /**
+     * Queues a send action, it runs on the dispatcher thread once its turn came. It is not spooled.
+     */
+    public void submit(Category category, GuildMessageChannel channel, Runnable send) {
+        submit(category, channel, send, OutboundMessage.NOT_SPOOLED, null);
+    }
+
+    /**
+     * @param spooled sequence numbers of spooled messages the send action replays, acknowledged once it ran or was dropped
+     * @param entry   creates the spool entry of a new message in case it cannot be sent, null if it cannot be spooled
+     */
+    void submit(Category category, GuildMessageChannel channel, Runnable send, long[] spooled, Supplier<SpoolEntry> entry) {
+        final OutboundMessage message = new OutboundMessage(category, channel, send, System.nanoTime(), spooled, entry);
+        final TuningConfig.Queue config = category.config();
+        final int capacity = Math.max(1, config.capacity);
+        final OverflowPolicy overflow = config.overflow == OverflowPolicy.BLOCK && !mayBlock.getAsBoolean() ? OverflowPolicy.DROP_OLDEST : config.overflow;
+        final ArrayDeque<OutboundMessage> queue = queues.get(category);
+        lock.lock();
+        try {
+            if (stopped) {
+                // like before the scheduler existed, JDA queues the request itself
+                lock.unlock();
+                try {
+                    send(message);
+                } finally {
+                    lock.lock();
+                }
+                return;
+            }
+            ensureStarted();
+            if (queue.size() >= capacity) {
+                switch (overflow) {
+                    case DROP_OLDEST -> {
+                        ack(queue.poll());
+                        counters.get(category).dropped.incrementAndGet();
+                    }
+                    case SUMMARIZE -> {
+                        summaries.get(category).computeIfAbsent(message.channelId(), id -> new Summary(channel)).count++;
+                        counters.get(category).summarized.incrementAndGet();
+                        ack(message);
+                        changed.signal();
+                        return;
+                    }
+                    case BLOCK -> {
+                        long wait = TimeUnit.MILLISECONDS.toNanos(TuningConfig.instance().outbound.blockTimeoutMillis);
+                        while (queue.size() >= capacity && wait > 0 && running)
+                            wait = notFull.awaitNanos(wait);
+                        if (queue.size() >= capacity) {
+                            counters.get(category).dropped.incrementAndGet();
+                            ack(message);
+                            return;
+                        }
+                    }
+                }
+            }
+            queue.add(message);
+            changed.signal();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            counters.get(category).dropped.incrementAndGet();
+            ack(message);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Accepts messages for the dispatcher again after {@link #shutdown}
+     */
+    public void start() {
+        lock.lock();
+        try {
+            stopped = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sends what is still queued, ignoring priorities and pacing, then stops the dispatcher. Until {@link #start} is
+     * called, later messages are handed to JDA directly on the calling thread, so a dispatcher stuck in a send is never
+     * joined by a second one.
+     */
+    public void shutdown(long timeout, TimeUnit unit) {
+        final Thread thread;
+        lock.lock();
+        try {
+            stopped = true;
+            if (!running) return;
+            running = false;
+            thread = dispatcher;
+            changed.signal();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            thread.join(unit.toMillis(timeout));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            final int spooled = spoolQueued();
+            DiscordIntegration.LOGGER.warn("Outbound messages were not all sent within " + timeout + " " + unit.name().toLowerCase()
+                    + (spooled > 0 ? ", " + spooled + " written to the spool" : ""));
+        }
+    }
+
+    public Stats stats(Category category) {
+        final Counters c = counters.get(category);
+        final long sent = c.sent.get();
+        return new Stats(category, sent, c.dropped.get(), c.summarized.get(), sent == 0 ? 0 : c.waitNanos.get() / 1e6 / sent, c.maxWaitNanos.get() / 1e6);
+    }
+
+    public int queued(Category category) {
+        lock.lock();
+        try {
+            return queues.get(category).size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Whether JDA is connected, messages are deferred to the spool otherwise
+     */
+    static boolean connected() {
+        return DiscordIntegration.INSTANCE != null && DiscordIntegration.INSTANCE.getJDA() != null
+                && DiscordIntegration.INSTANCE.getJDA().getStatus() == JDA.Status.CONNECTED;
+    }
+
+    /**
+     * Takes everything still queued away from the dispatcher and keeps what can be spooled for the next start. Without a
+     * spool the messages stay queued for the stuck dispatcher, or the next one, to send once it can.
+     *
+     * @return number of messages written or kept in the spool
+     */
+    private int spoolQueued() {
+        if (spool == null) return 0;
+        final List<OutboundMessage> remaining = new ArrayList<>();
+        lock.lock();
+        try {
+            for (ArrayDeque<OutboundMessage> queue : queues.values()) {
+                remaining.addAll(queue);
+                queue.clear();
+            }
+        } finally {
+            lock.unlock();
+        }
+        int spooled = 0;
+        for (OutboundMessage message : remaining)
+            if (defer(message)) spooled++;
+        return spooled;
+    }
+
+    /**
+     * Keeps the message in the spool for replay instead of sending it
+     *
+     * @return false if there is no spool or the message cannot be spooled
+     */
+    private boolean defer(OutboundMessage message) {
+        final OutboundSpool spool = this.spool;
+        if (spool == null) return false;
+        if (message.spooled().length > 0) {
+            for (long seq : message.spooled())
+                spool.defer(seq);
+            return true;
+        }
+        if (message.entry() == null) return false;
+        return spool.append(message.entry().get()) != 0;
+    }
+
+    private void ack(OutboundMessage message) {
+        final OutboundSpool spool = this.spool;
+        if (spool == null || message == null) return;
+        for (long seq : message.spooled())
+            spool.ack(seq);
+    }
+
+    private void ensureStarted() {
+        if (running) return;
+        running = true;
+        final Thread previous = dispatcher;
+        dispatcher = new Thread(() -> dispatch(previous), "DiscordIntegration Outbound Dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    /**
+     * @param previous dispatcher of the last start, it may still be stuck in a send and has to finish first to keep the order
+     */
+    private void dispatch(Thread previous) {
+        if (previous != null) {
+            try {
+                previous.join();
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+        while (true) {
+            final OutboundMessage next;
+            lock.lock();
+            try {
+                next = next();
+                if (next == null) return;
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            send(next);
+        }
+    }
+
+    /**
+     * Waits for the next message that may be sent, null once stopped and drained or once a newer dispatcher took over
+     */
+    private OutboundMessage next() throws InterruptedException {
+        while (true) {
+            // a dispatcher that outlived its shutdown leaves everything to the one started after it
+            if (dispatcher != Thread.currentThread()) return null;
+            final long now = System.nanoTime();
+            long wait = Long.MAX_VALUE;
+            boolean empty = true;
+            for (Category category : Category.values()) {
+                final ArrayDeque<OutboundMessage> queue = queues.get(category);
+                final OutboundMessage head = queue.isEmpty() ? summary(category) : queue.peek();
+                if (head == null) continue;
+                empty = false;
+                final long delay = running ? pacer.reserve(head.channelId(), now) : 0;
+                if (delay > 0) {
+                    wait = Math.min(wait, delay);
+                    continue;
+                }
+                if (queue.isEmpty()) summaries.get(category).remove(head.channelId());
+                else queue.poll();
+                notFull.signalAll();
+                return head;
+            }
+            if (empty && !running) return null;
+            if (wait == Long.MAX_VALUE) changed.await();
+            else changed.awaitNanos(wait);
+        }
+    }
+
+    /**
+     * Summary message for messages of the category that were dropped, only sent once the category's queue is empty
+     */
+    private OutboundMessage summary(Category category) {
+        final Map<String, Summary> pending = summaries.get(category);
+        if (pending.isEmpty()) return null;
+        final Summary summary = pending.values().iterator().next();
+        final String text = Template.render(TuningConfig.instance().outbound.overflowSummary, new Placeholders()
+                .put("count", String.valueOf(summary.count)));
+        return new OutboundMessage(category, summary.channel, () -> DiscordIntegration.INSTANCE.sendMessage(text, summary.channel), System.nanoTime(), OutboundMessage.NOT_SPOOLED, null);
+    }
+
+    private void send(OutboundMessage message) {
+        if (!connected() && defer(message)) return;
+        final Counters c = counters.get(message.category());
+        final long waited = System.nanoTime() - message.queuedAt();
+        c.sent.incrementAndGet();
+        c.waitNanos.addAndGet(waited);
+        c.maxWaitNanos.accumulateAndGet(waited, Math::max);
+        try {
+            if (DiscordIntegration.INSTANCE != null) message.send().run();
+        } catch (Exception e) {
+            DiscordIntegration.LOGGER.error("Failed to send " + message.category().name().toLowerCase() + " message", e);
+        }
+        ack(message);
+    }
+}
@@ -0,0 +1,274 @@
+package de.erdbeerbaerlp.dcintegration.architectury.outbound;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import de.erdbeerbaerlp.dcintegration.common.DiscordIntegration;
+import it.unimi.dsi.fastutil.longs.LongRBTreeSet;
+import it.unimi.dsi.fastutil.longs.LongSortedSet;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * Outbound messages on disk, so messages produced while Discord is unreachable or the server stops are sent later.
+ * <p>
+ * Only messages that could not be sent are written, by the dispatcher thread of the {@link OutboundScheduler}, never by
+ * the thread that produced them. Each gets a sequence number and is appended as a line of JSON to the newest segment
+ * file, named after the first sequence number in it, and is deferred for replay. A replayed message is acknowledged once
+ * it was handed to JDA or dropped on purpose by an overflow policy. The highest sequence number below which everything
+ * is acknowledged is written to {@value #ACKED_FILE}, and segments entirely below it are deleted. After a crash,
+ * messages replayed after the last written acknowledgement are sent a second time, messages that were still queued in
+ * memory are lost.
+ * <p>
+ * The total size of the segments is bounded, the oldest segment is deleted with whatever it still holds when the bound
+ * is exceeded.
+ */
+public class OutboundSpool {
+    private static final String ACKED_FILE = "acked";
+    private static final String SUFFIX = ".log";
+    private static final Gson gson = new Gson();
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final long maxBytes;
+    /** Segment files by the first sequence number they hold */
+    private final TreeMap<Long, Path> segments = new TreeMap<>();
+    /** Appended but not yet acknowledged */
+    private final LongSortedSet unacked = new LongRBTreeSet();
+    /** Not acknowledged and not queued, waiting for replay */
+    private final LongSortedSet deferred = new LongRBTreeSet();
+    private BufferedWriter writer;
+    private long currentBytes;
+    private long totalBytes;
+    private long nextSeq = 1;
+    private long acked;
+    private long writtenAcked = -1;
+    private long lost;
+
+    public OutboundSpool(Path directory, long segmentBytes, long maxBytes) {
+        this.directory = directory;
+        this.segmentBytes = Math.max(4096, segmentBytes);
+        this.maxBytes = Math.max(this.segmentBytes * 2, maxBytes);
+    }
+
+    /**
+     * Reads the acknowledged position and defers every message after it for replay
+     *
+     * @return number of messages waiting for replay
+     */
+    public synchronized int open() {
+        try {
+            Files.createDirectories(directory);
+            final Path ackedFile = directory.resolve(ACKED_FILE);
+            if (Files.exists(ackedFile)) acked = Long.parseLong(Files.readString(ackedFile).trim());
+            writtenAcked = acked;
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+                for (Path file : files) {
+                    final String name = file.getFileName().toString();
+                    try {
+                        segments.put(Long.parseLong(name.substring(0, name.length() - SUFFIX.length())), file);
+                    } catch (NumberFormatException ignored) {
+                    }
+                }
+            }
+            nextSeq = acked + 1;
+            for (Path file : segments.values()) {
+                totalBytes += Files.size(file);
+                read(file, entry -> {
+                    nextSeq = Math.max(nextSeq, entry.seq() + 1);
+                    if (entry.seq() > acked) {
+                        unacked.add(entry.seq());
+                        deferred.add(entry.seq());
+                    }
+                    return true;
+                });
+            }
+        } catch (IOException | NumberFormatException e) {
+            DiscordIntegration.LOGGER.error("Could not read outbound spool in " + directory + ", unsent messages from before are lost", e);
+        }
+        deleteAcknowledgedSegments();
+        return deferred.size();
+    }
+
+    /**
+     * Writes a message that could not be sent to disk and defers it for replay
+     *
+     * @return its sequence number, 0 if it could not be written
+     */
+    public synchronized long append(SpoolEntry entry) {
+        final long seq = nextSeq;
+        final String line = gson.toJson(entry.withSeq(seq)) + "\n";
+        final int bytes = line.getBytes(StandardCharsets.UTF_8).length;
+        try {
+            if (writer == null || currentBytes + bytes > segmentBytes) roll(seq);
+            writer.write(line);
+            writer.flush();
+        } catch (IOException e) {
+            DiscordIntegration.LOGGER.error("Could not write to outbound spool", e);
+            return 0;
+        }
+        nextSeq++;
+        currentBytes += bytes;
+        totalBytes += bytes;
+        unacked.add(seq);
+        deferred.add(seq);
+        if (totalBytes > maxBytes) dropOldestSegment();
+        return seq;
+    }
+
+    public synchronized void ack(long seq) {
+        if (seq <= 0) return;
+        unacked.remove(seq);
+        deferred.remove(seq);
+        acked = unacked.isEmpty() ? nextSeq - 1 : unacked.firstLong() - 1;
+    }
+
+    /**
+     * Keeps the message for replay, it could not be sent
+     */
+    public synchronized void defer(long seq) {
+        if (seq > 0 && unacked.contains(seq)) deferred.add(seq);
+    }
+
+    public synchronized boolean hasDeferred() {
+        return !deferred.isEmpty();
+    }
+
+    public synchronized int deferred() {
+        return deferred.size();
+    }
+
+    /**
+     * Messages lost because the spool was full
+     */
+    public synchronized long lost() {
+        return lost;
+    }
+
+    /**
+     * Reads deferred messages from disk in order and takes them out of the deferred set, they count as queued again
+     *
+     * @param accept decides per message whether it is taken, reading stops at the first message that is not
+     */
+    public synchronized List<SpoolEntry> takeDeferred(Predicate<SpoolEntry> accept) {
+        final List<SpoolEntry> taken = new ArrayList<>();
+        if (deferred.isEmpty()) return taken;
+        final Long first = segments.floorKey(deferred.firstLong());
+        for (Path file : (first == null ? segments : segments.tailMap(first, true)).values()) {
+            final boolean more = read(file, entry -> {
+                if (!deferred.contains(entry.seq())) return true;
+                if (!accept.test(entry)) return false;
+                deferred.remove(entry.seq());
+                taken.add(entry);
+                return true;
+            });
+            if (!more) break;
+        }
+        return taken;
+    }
+
+    /**
+     * Writes the acknowledged position and deletes segments that are no longer needed
+     */
+    public synchronized void checkpoint() {
+        if (acked == writtenAcked) return;
+        try {
+            final Path file = directory.resolve(ACKED_FILE);
+            final Path temp = directory.resolve(ACKED_FILE + ".tmp");
+            Files.writeString(temp, Long.toString(acked));
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            writtenAcked = acked;
+        } catch (IOException e) {
+            DiscordIntegration.LOGGER.error("Could not write outbound spool position", e);
+        }
+        deleteAcknowledgedSegments();
+    }
+
+    public synchronized void close() {
+        checkpoint();
+        try {
+            if (writer != null) writer.close();
+        } catch (IOException e) {
+            DiscordIntegration.LOGGER.warn("Error closing outbound spool", e);
+        }
+        writer = null;
+    }
+
+    private void roll(long firstSeq) throws IOException {
+        if (writer != null) writer.close();
+        final Path file = directory.resolve(String.format("%020d", firstSeq) + SUFFIX);
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segments.put(firstSeq, file);
+        currentBytes = 0;
+    }
+
+    /**
+     * Deletes segments whose messages are all acknowledged, never the one being written
+     */
+    private void deleteAcknowledgedSegments() {
+        while (segments.size() > 1) {
+            final Map.Entry<Long, Path> oldest = segments.firstEntry();
+            final long nextFirst = segments.higherKey(oldest.getKey());
+            if (nextFirst - 1 > acked) break;
+            delete(oldest.getValue());
+            segments.pollFirstEntry();
+        }
+    }
+
+    private void dropOldestSegment() {
+        if (segments.size() < 2) return;
+        final Map.Entry<Long, Path> oldest = segments.pollFirstEntry();
+        final long end = segments.firstKey();
+        final LongSortedSet dropped = unacked.headSet(end);
+        final int count = dropped.size();
+        lost += count;
+        dropped.clear();
+        deferred.headSet(end).clear();
+        acked = unacked.isEmpty() ? nextSeq - 1 : unacked.firstLong() - 1;
+        delete(oldest.getValue());
+        if (count > 0)
+            DiscordIntegration.LOGGER.warn("Outbound spool is full, dropped " + count + " unsent messages");
+    }
+
+    private void delete(Path file) {
+        try {
+            totalBytes -= Files.size(file);
+            Files.delete(file);
+        } catch (IOException e) {
+            DiscordIntegration.LOGGER.warn("Could not delete outbound spool segment " + file, e);
+        }
+    }
+
+    /**
+     * @return false if the visitor stopped early
+     */
+    private boolean read(Path file, Predicate<SpoolEntry> visitor) {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final SpoolEntry entry;
+                try {
+                    entry = gson.fromJson(line, SpoolEntry.class);
+                } catch (JsonParseException e) {
+                    continue; // cut off by a crash
+                }
+                if (entry != null && !visitor.test(entry)) return false;
+            }
+        } catch (IOException e) {
+            DiscordIntegration.LOGGER.warn("Could not read outbound spool segment " + file, e);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,25 @@
+package de.erdbeerbaerlp.dcintegration.architectury.outbound;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * One daemon timer thread shared by the aggregators that flush summaries periodically
+ */
+public final class OutboundTimer {
+    private static ScheduledExecutorService timer;
+
+    private OutboundTimer() {
+    }
+
+    public static synchronized ScheduledExecutorService get() {
+        if (timer == null) {
+            timer = Executors.newSingleThreadScheduledExecutor(r -> {
+                final Thread thread = new Thread(r, "DiscordIntegration Outbound Timer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return timer;
+    }
+}
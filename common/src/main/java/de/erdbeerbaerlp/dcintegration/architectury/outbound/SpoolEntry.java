@@ -0,0 +1,50 @@
+package de.erdbeerbaerlp.dcintegration.architectury.outbound;
+
+import de.erdbeerbaerlp.dcintegration.common.util.DiscordMessage;
+import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.dv8tion.jda.api.utils.data.DataObject;
+
+/**
+ * A message in the {@link OutboundSpool}, stored as one line of JSON
+ *
+ * @param seq        position in the spool, assigned when appended
+ * @param channel    id of the target channel
+ * @param senderName player or server name the message is sent as, null for messages of the bot itself
+ * @param embed      the embed as Discord's JSON, null if there is none
+ * @param raw        whether a sender message is sent as written, the inverse of {@link DiscordMessage}'s isNotRaw. Spool
+ *                   files of older versions lack it and are replayed as not raw, like they were before.
+ */
+public record SpoolEntry(long seq, OutboundScheduler.Category category, String channel, String senderName, String senderUUID, String text, String embed, boolean raw) {
+    static SpoolEntry of(OutboundScheduler.Category category, String channel, DiscordMessage message) {
+        return of(category, channel, null, null, message.getEmbed(), message.getMessage(), false);
+    }
+
+    static SpoolEntry of(OutboundScheduler.Category category, String channel, String senderName, String senderUUID, MessageEmbed embed, String text, boolean notRaw) {
+        return new SpoolEntry(0, category, channel, senderName, senderUUID, text, embed == null ? null : embed.toData().toString(), !notRaw);
+    }
+
+    static SpoolEntry of(OutboundScheduler.Category category, String channel, String text) {
+        return new SpoolEntry(0, category, channel, null, null, text, null, false);
+    }
+
+    SpoolEntry withSeq(long seq) {
+        return new SpoolEntry(seq, category, channel, senderName, senderUUID, text, embed, raw);
+    }
+
+    boolean hasSender() {
+        return senderName != null;
+    }
+
+    /**
+     * Whether the text of the other entry can be appended to this one's in a single message
+     */
+    boolean mergesWith(SpoolEntry other) {
+        return embed == null && other.embed == null && category == other.category && channel.equals(other.channel) && raw == other.raw
+                && (hasSender() ? senderName.equals(other.senderName) && senderUUID.equals(other.senderUUID) : !other.hasSender());
+    }
+
+    MessageEmbed buildEmbed() {
+        return embed == null ? null : EmbedBuilder.fromData(DataObject.fromJson(embed)).build();
+    }
+}
@@ -0,0 +1,103 @@
+package de.erdbeerbaerlp.dcintegration.architectury.outbound;
+
+import de.erdbeerbaerlp.dcintegration.common.DiscordIntegration;
+import de.erdbeerbaerlp.dcintegration.common.util.DiscordMessage;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.dv8tion.jda.api.entities.channel.middleman.GuildMessageChannel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends deferred messages of the {@link OutboundSpool} once Discord is reachable again, including those left from before
+ * a restart.
+ * <p>
+ * Every interval, consecutive messages to the same channel from the same sender are merged into as few messages as
+ * Discord's length limit allows, and at most the configured number of merged messages is queued, so a long outage
+ * does not flood the channels once it ends. The interval also writes the spool's acknowledged position.
+ */
+public class SpoolReplayer {
+    private static final int MAX_LENGTH = 2000;
+
+    private final OutboundScheduler scheduler;
+    private final OutboundSpool spool;
+    private ScheduledFuture<?> task;
+
+    public SpoolReplayer(OutboundScheduler scheduler, OutboundSpool spool) {
+        this.scheduler = scheduler;
+        this.spool = spool;
+    }
+
+    public synchronized void start(long intervalMillis, int messagesPerInterval) {
+        if (task != null) return;
+        final long interval = Math.max(1000, intervalMillis);
+        task = OutboundTimer.get().scheduleWithFixedDelay(() -> replay(Math.max(1, messagesPerInterval)), interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (task != null) task.cancel(false);
+        task = null;
+    }
+
+    private void replay(int maxMessages) {
+        try {
+            spool.checkpoint();
+            if (!spool.hasDeferred() || !OutboundScheduler.connected()) return;
+            final List<List<SpoolEntry>> messages = new ArrayList<>();
+            final int[] length = new int[1];
+            spool.takeDeferred(entry -> {
+                final int entryLength = text(entry).length();
+                if (!messages.isEmpty()) {
+                    final List<SpoolEntry> last = messages.get(messages.size() - 1);
+                    if (last.get(0).mergesWith(entry) && length[0] + 1 + entryLength <= MAX_LENGTH) {
+                        last.add(entry);
+                        length[0] += 1 + entryLength;
+                        return true;
+                    }
+                }
+                if (messages.size() >= maxMessages) return false;
+                final List<SpoolEntry> next = new ArrayList<>();
+                next.add(entry);
+                messages.add(next);
+                length[0] = entryLength;
+                return true;
+            });
+            for (List<SpoolEntry> message : messages)
+                submit(message);
+        } catch (Exception e) {
+            DiscordIntegration.LOGGER.error("Failed to replay spooled messages", e);
+        }
+    }
+
+    private void submit(List<SpoolEntry> entries) {
+        final SpoolEntry first = entries.get(0);
+        final long[] seqs = new long[entries.size()];
+        final StringBuilder text = new StringBuilder();
+        for (int i = 0; i < seqs.length; i++) {
+            seqs[i] = entries.get(i).seq();
+            if (i > 0) text.append('\n');
+            text.append(text(entries.get(i)));
+        }
+        final GuildMessageChannel channel = DiscordIntegration.INSTANCE.getChannel(first.channel());
+        if (channel == null) {
+            // the channel is gone or no longer configured, nothing to retry
+            for (long seq : seqs)
+                spool.ack(seq);
+            return;
+        }
+        final MessageEmbed embed = first.buildEmbed();
+        final String content = text.toString();
+        if (first.hasSender())
+            scheduler.submit(first.category(), channel, () -> DiscordIntegration.INSTANCE.sendMessage(first.senderName(), first.senderUUID(), new DiscordMessage(embed, content, !first.raw()), channel), seqs, null);
+        else if (embed != null)
+            scheduler.submit(first.category(), channel, () -> DiscordIntegration.INSTANCE.sendMessage(new DiscordMessage(embed, content), channel), seqs, null);
+        else
+            scheduler.submit(first.category(), channel, () -> DiscordIntegration.INSTANCE.sendMessage(content, channel), seqs, null);
+    }
+
+    private static String text(SpoolEntry entry) {
+        return entry.text() == null ? "" : entry.text();
+    }
+}
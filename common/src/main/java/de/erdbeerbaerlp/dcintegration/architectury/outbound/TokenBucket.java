@@ -0,0 +1,49 @@
+package de.erdbeerbaerlp.dcintegration.architectury.outbound;
+
+/**
+ * Local model of a Discord rate limit bucket: a number of requests per window, the window starts with the first request
+ * and the bucket is full again once it ended.
+ * <p>
+ * Time is passed in by the caller as {@link System#nanoTime()}-like values, so the bucket can be driven by any clock.
+ * Not thread-safe.
+ */
+public class TokenBucket {
+    private final int capacity;
+    private final long periodNanos;
+    private int tokens;
+    private long windowEnd;
+    private boolean started;
+
+    public TokenBucket(int capacity, long periodNanos) {
+        this.capacity = Math.max(1, capacity);
+        this.periodNanos = Math.max(1, periodNanos);
+        this.tokens = this.capacity;
+    }
+
+    /**
+     * @return 0 if a request can be made now, it is then taken from the bucket, otherwise nanoseconds until it can
+     */
+    public long tryAcquire(long now) {
+        final long wait = delay(now);
+        if (wait > 0) return wait;
+        if (!started || now - windowEnd >= 0) {
+            tokens = capacity;
+            windowEnd = now + periodNanos;
+            started = true;
+        }
+        tokens--;
+        return 0;
+    }
+
+    /**
+     * @return nanoseconds until a request can be made, 0 if it can be made now
+     */
+    public long delay(long now) {
+        if (!started || now - windowEnd >= 0 || tokens > 0) return 0;
+        return windowEnd - now;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
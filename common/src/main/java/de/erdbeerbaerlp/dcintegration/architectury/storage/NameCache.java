@@ -0,0 +1,197 @@
+package de.erdbeerbaerlp.dcintegration.architectury.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import de.erdbeerbaerlp.dcintegration.common.DiscordIntegration;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Shared UUID to player name cache, stored in DiscordIntegration-Data/NameCache.json
+ * <p>
+ * Names are seeded from online players when they join. Entries older than the configured TTL are still returned but
+ * refreshed in the background. Remote fetches are single-flight: concurrent requests for the same UUID share one fetch.
+ */
+public class NameCache {
+    private static final Path CACHE_FILE = Path.of("DiscordIntegration-Data", "NameCache.json");
+    private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    private static volatile NameCache instance;
+
+    private final Map<UUID, Entry> names = new ConcurrentHashMap<>();
+    private final Map<UUID, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private final ExecutorService fetchExecutor;
+    private final long ttlMillis;
+    private final long lookupTimeoutMillis;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong fetches = new AtomicLong();
+    private final AtomicLong failedFetches = new AtomicLong();
+    private final AtomicLong fetchNanos = new AtomicLong();
+    private final AtomicLong maxFetchNanos = new AtomicLong();
+    private volatile boolean dirty;
+
+    record Entry(String name, long fetchedAt) {
+    }
+
+    public record Stats(long hits, long staleHits, long misses, long fetches, long failedFetches, double averageFetchMillis, double maxFetchMillis) {
+        public double hitRatio() {
+            final long total = hits + staleHits + misses;
+            return total == 0 ? 0 : (double) (hits + staleHits) / total;
+        }
+    }
+
+    private NameCache(TuningConfig.Names config) {
+        this.ttlMillis = config.ttlMillis;
+        this.lookupTimeoutMillis = config.lookupTimeoutMillis;
+        final AtomicInteger threads = new AtomicInteger();
+        this.fetchExecutor = Executors.newFixedThreadPool(Math.max(1, config.fetchThreads), r -> {
+            final Thread thread = new Thread(r, "DiscordIntegration Name Lookup #" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static NameCache instance() {
+        if (instance == null) load();
+        return instance;
+    }
+
+    public static synchronized void load() {
+        if (instance != null) return;
+        final NameCache cache = new NameCache(TuningConfig.instance().names);
+        try {
+            if (Files.exists(CACHE_FILE)) {
+                final Map<UUID, Entry> read = gson.fromJson(Files.readString(CACHE_FILE), new TypeToken<Map<UUID, Entry>>() {
+                }.getType());
+                if (read != null) cache.names.putAll(read);
+            }
+        } catch (IOException | JsonParseException e) {
+            DiscordIntegration.LOGGER.error("Failed to read " + CACHE_FILE + ", starting with an empty name cache", e);
+        }
+        instance = cache;
+    }
+
+    /**
+     * Records a known name, for example from the profile of a joining player
+     */
+    public void put(UUID uuid, String name) {
+        if (uuid == null || name == null || name.isBlank()) return;
+        final Entry previous = names.put(uuid, new Entry(name, System.currentTimeMillis()));
+        if (previous == null || !previous.name().equals(name)) dirty = true;
+    }
+
+    /**
+     * Cached name without waiting. A stale entry is returned and refreshed in the background, a missing one is fetched in
+     * the background and null is returned.
+     */
+    public String getIfPresent(UUID uuid, Function<UUID, String> fetcher) {
+        final Entry entry = names.get(uuid);
+        if (entry == null) {
+            misses.incrementAndGet();
+            lookup(uuid, fetcher);
+            return null;
+        }
+        countHit(uuid, entry, fetcher);
+        return entry.name();
+    }
+
+    /**
+     * Cached name, waiting for a remote fetch only if the name was never seen before
+     *
+     * @return the name or null if it could not be fetched in time
+     */
+    public String get(UUID uuid, Function<UUID, String> fetcher) {
+        final Entry entry = names.get(uuid);
+        if (entry != null) {
+            countHit(uuid, entry, fetcher);
+            return entry.name();
+        }
+        misses.incrementAndGet();
+        try {
+            return lookup(uuid, fetcher).get(lookupTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Fetches the name remotely unless a fresh one is cached, joining a fetch for the same UUID that is already running
+     */
+    public CompletableFuture<String> lookup(UUID uuid, Function<UUID, String> fetcher) {
+        final Entry entry = names.get(uuid);
+        if (entry != null && System.currentTimeMillis() - entry.fetchedAt() < ttlMillis)
+            return CompletableFuture.completedFuture(entry.name());
+        final CompletableFuture<String> created = new CompletableFuture<>();
+        final CompletableFuture<String> running = inFlight.putIfAbsent(uuid, created);
+        if (running != null) return running;
+        fetchExecutor.execute(() -> {
+            final long start = System.nanoTime();
+            String name = null;
+            Exception failure = null;
+            try {
+                name = fetcher.apply(uuid);
+                if (name != null) put(uuid, name);
+            } catch (Exception e) {
+                failure = e;
+            }
+            final long took = System.nanoTime() - start;
+            fetches.incrementAndGet();
+            if (name == null) failedFetches.incrementAndGet();
+            fetchNanos.addAndGet(took);
+            maxFetchNanos.accumulateAndGet(took, Math::max);
+            // later requests find the name in the cache once this fetch is no longer in flight
+            inFlight.remove(uuid, created);
+            if (failure != null) created.completeExceptionally(failure);
+            else created.complete(name);
+        });
+        return created;
+    }
+
+    public Stats stats() {
+        final long fetched = fetches.get();
+        return new Stats(hits.get(), staleHits.get(), misses.get(), fetched, failedFetches.get(),
+                fetched == 0 ? 0 : fetchNanos.get() / 1e6 / fetched, maxFetchNanos.get() / 1e6);
+    }
+
+    /**
+     * Writes the cache to disk if it changed since the last save
+     */
+    public synchronized void save() {
+        if (!dirty) return;
+        dirty = false;
+        try {
+            Files.createDirectories(CACHE_FILE.getParent());
+            final Path temp = CACHE_FILE.resolveSibling(CACHE_FILE.getFileName() + ".tmp");
+            Files.writeString(temp, gson.toJson(names));
+            Files.move(temp, CACHE_FILE, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            dirty = true;
+            DiscordIntegration.LOGGER.error("Unable to write " + CACHE_FILE, e);
+        }
+    }
+
+    private void countHit(UUID uuid, Entry entry, Function<UUID, String> fetcher) {
+        if (System.currentTimeMillis() - entry.fetchedAt() < ttlMillis) {
+            hits.incrementAndGet();
+            return;
+        }
+        staleHits.incrementAndGet();
+        lookup(uuid, fetcher);
+    }
+}
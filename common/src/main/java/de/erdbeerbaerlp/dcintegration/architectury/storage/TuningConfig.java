@@ -0,0 +1,241 @@
+package de.erdbeerbaerlp.dcintegration.architectury.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import de.erdbeerbaerlp.dcintegration.architectury.outbound.OutboundScheduler;
+import de.erdbeerbaerlp.dcintegration.common.DiscordIntegration;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Settings of this mod that are not part of the shared Discord-Integration.toml, stored in DiscordIntegration-Data/Tuning.json
+ */
+public class TuningConfig {
+    private static final Path CONFIG_FILE = Path.of("DiscordIntegration-Data", "Tuning.json");
+    private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    private static volatile TuningConfig instance;
+
+    final String _notice1 = "Performance tuning for the Minecraft side of Discord Integration.";
+    final String _notice2 = "Defaults are fine for most servers, only change these if you know what they do.";
+
+    public History history = new History();
+    public Names names = new Names();
+    public Outbound outbound = new Outbound();
+
+    public static class History {
+        /** Number of records a new day segment is sized for, segments double in size when full */
+        public int segmentInitialCapacity = 4096;
+        /** Keep the (interned) message text next to its hash so duplicate checks compare the text itself, costs heap per entry */
+        public boolean keepMessageText = false;
+        /** Messages per window the duplicate check's Bloom filters are sized for, split across the stripes, they double when exceeded */
+        public int bloomExpectedMessages = 65536;
+        /** False positive rate the Bloom filter is sized for, a false positive only costs one exact lookup */
+        public double bloomFalsePositiveRate = 0.01;
+        /** Number of independently locked parts of the duplicate history, rounded up to a power of two */
+        public int lockStripes = 16;
+        /** Maximum number of history records waiting to be written before new ones are dropped */
+        public int writerQueueCapacity = 8192;
+        /** Maximum number of records written in one group commit */
+        public int groupCommitSize = 256;
+        /** Maximum time in milliseconds a record waits before its group commit */
+        public long groupCommitIntervalMillis = 1000;
+        /** How long a message counts as a duplicate of an earlier one, per kind of message */
+        public Windows windows = new Windows();
+    }
+
+    /**
+     * Duplicate windows in milliseconds, 0 disables the duplicate check for that kind of message
+     */
+    public static class Windows {
+        /** Chat messages, catches the same message echoed back by another mod or proxy */
+        public long chatMillis = 5_000;
+        /** Join and leave messages, catches reconnect loops */
+        public long joinLeaveMillis = 60_000;
+        /** Death messages */
+        public long deathMillis = 10_000;
+        /** Logged commands */
+        public long commandMillis = 5_000;
+        /** Server messages like "Server started" */
+        public long serverMillis = 300_000;
+        /** Messages of the mod itself */
+        public long internalMillis = 300_000;
+    }
+
+    public static class Names {
+        /** Age in milliseconds after which a cached player name is refreshed in the background, it is still used meanwhile */
+        public long ttlMillis = 86_400_000;
+        /** Maximum time in milliseconds to wait for the name of a player that was never seen before */
+        public long lookupTimeoutMillis = 5_000;
+        /** Number of threads fetching player names remotely */
+        public int fetchThreads = 2;
+    }
+
+    public static class Outbound {
+        /** Maximum number of chat messages waiting to be relayed to Discord before new ones are dropped */
+        public int chatQueueCapacity = 4096;
+        /** Number of item embeds kept for items shown in death messages, items with the same components share one */
+        public int itemEmbedCacheSize = 256;
+        /** Merge consecutive chat lines of the same player into one Discord message, saves requests during chat bursts */
+        public boolean batchChat = false;
+        /** Maximum time in milliseconds a chat line waits for more lines to be merged with */
+        public long batchWindowMillis = 750;
+        /** Maximum length of a merged message, Discord allows 2000 characters and the chat format adds the player name */
+        public int batchMaxLength = 1900;
+        /** Maximum time in milliseconds a merged message is held back while its channel is rate limited, to merge more lines */
+        public long batchMaxDelayMillis = 5000;
+        /** Local model of Discord's rate limits, messages wait in their queue instead of inside JDA */
+        public RateLimits rateLimits = new RateLimits();
+        /** Maximum time in milliseconds a message waits for room in a full queue with the BLOCK policy */
+        public long blockTimeoutMillis = 1000;
+        /** Sent in place of messages dropped by the SUMMARIZE policy, %count% is their number */
+        public String overflowSummary = "*%count% more messages were not sent to keep up with the load*";
+        /** Queue of each kind of message, in order of priority */
+        public Queues queues = new Queues();
+        /** Summaries instead of single join and leave messages while many players join or leave at once */
+        public JoinLeaveStorm joinLeaveStorm = new JoinLeaveStorm();
+        /** Time in milliseconds advancements of a player are collected for before they are sent together, 0 sends each one on its own */
+        public long advancementWindowMillis = 1000;
+        /** Used for several advancements sent together, %count% is their number, %advancements% one line per advancement */
+        public String advancementCombined = "**%player%** has made %count% advancements:\n%advancements%";
+        /** One advancement in the combined message, with %advName% and %advDesc% */
+        public String advancementCombinedLine = "- **%advName%** _%advDesc%_";
+        /** One summary per interval in place of single death messages */
+        public DeathDigest deathDigest = new DeathDigest();
+        /** Logged commands collected into code blocks instead of one message each */
+        public CommandLogDigest commandLogDigest = new CommandLogDigest();
+        /** Messages kept on disk until they were sent, so they survive Discord outages and restarts */
+        public Spool spool = new Spool();
+    }
+
+    /**
+     * Stored in DiscordIntegration-Data/Spool
+     */
+    public static class Spool {
+        /** Write messages that could not be sent to disk, including those still queued when the server stops, and send them once Discord is reachable */
+        public boolean enabled = false;
+        /** Size in bytes at which a new segment file is started */
+        public long segmentBytes = 1_048_576;
+        /** Maximum size of all segments in bytes, the oldest unsent messages are dropped beyond it */
+        public long maxBytes = 16_777_216;
+        /** Time in milliseconds between replays of unsent messages */
+        public long replayIntervalMillis = 5_000;
+        /** Maximum number of messages per replay, consecutive messages to the same channel are merged first */
+        public int replayMessages = 5;
+    }
+
+    public static class CommandLogDigest {
+        /** Send logged commands in code blocks of many lines, replaces the command log message format */
+        public boolean enabled = false;
+        /** Maximum time in milliseconds a command waits before its block is sent */
+        public long flushIntervalMillis = 5_000;
+        /** Maximum number of commands in one block, blocks are also sent before they exceed Discord's message length */
+        public int maxLines = 40;
+        /** %time% is when the command ran, %sender%, %cmd% and %cmd-no-args% are the same as in the command log message */
+        public String line = "[%time%] %sender%: /%cmd%";
+        /** Pattern for %time%, see java.time.format.DateTimeFormatter */
+        public String timeFormat = "HH:mm:ss";
+    }
+
+    public static class DeathDigest {
+        /** Send summaries instead of single death messages, for servers where players die every few seconds */
+        public boolean enabled = false;
+        /** Time in milliseconds between summaries, at least 10 seconds */
+        public long intervalMillis = 60_000;
+        /** Number of names listed as top killers and most deaths */
+        public int listedNames = 5;
+        /** Number of death messages of the rarest causes shown */
+        public int notableMessages = 3;
+        /** Maximum number of different killers, victims and causes counted per summary, the rest count as "others" */
+        public int maxTracked = 256;
+        /** %count% is the number of deaths, %period% the interval */
+        public String header = ":skull: **%count% deaths** in the last %period%";
+        /** Sections are left out when empty */
+        public String topKillers = "**Top killers:** %killers%";
+        public String mostDeaths = "**Most deaths:** %victims%";
+        public String notable = "**Notable:**\n%messages%";
+    }
+
+    public static class JoinLeaveStorm {
+        /** Joins and leaves within the window that start summarizing, 0 always sends single messages */
+        public int threshold = 10;
+        public long windowMillis = 10_000;
+        /** How often a summary is sent while summarizing, summarizing stops once the rate dropped below half the threshold */
+        public long summaryIntervalMillis = 10_000;
+        /** Maximum number of player names listed in a summary */
+        public int maxListedPlayers = 40;
+        /** %count% is the number of players, %players% their names */
+        public String joinedSummary = "**%count% players joined:** %players%";
+        public String leftSummary = "**%count% players left:** %players%";
+    }
+
+    /**
+     * Discord's documented limits, only change these if Discord changes them
+     */
+    public static class RateLimits {
+        /** Messages per channel and window */
+        public int channelRequests = 5;
+        public long channelPeriodMillis = 5_000;
+        /** Requests of the bot per window, across all channels */
+        public int globalRequests = 50;
+        public long globalPeriodMillis = 1_000;
+    }
+
+    /**
+     * Overflow policies are DROP_OLDEST, SUMMARIZE and BLOCK, BLOCK never waits on the server thread and drops the oldest message there instead
+     */
+    public static class Queues {
+        public Queue chat = new Queue(1024, OutboundScheduler.OverflowPolicy.DROP_OLDEST);
+        public Queue joinLeave = new Queue(256, OutboundScheduler.OverflowPolicy.DROP_OLDEST);
+        public Queue death = new Queue(256, OutboundScheduler.OverflowPolicy.DROP_OLDEST);
+        public Queue advancement = new Queue(128, OutboundScheduler.OverflowPolicy.SUMMARIZE);
+        public Queue command = new Queue(256, OutboundScheduler.OverflowPolicy.SUMMARIZE);
+    }
+
+    public static class Queue {
+        /** Maximum number of messages waiting to be sent */
+        public int capacity = 256;
+        /** What happens to new messages while the queue is full */
+        public OutboundScheduler.OverflowPolicy overflow = OutboundScheduler.OverflowPolicy.DROP_OLDEST;
+
+        public Queue() {
+        }
+
+        Queue(int capacity, OutboundScheduler.OverflowPolicy overflow) {
+            this.capacity = capacity;
+            this.overflow = overflow;
+        }
+    }
+
+    public static TuningConfig instance() {
+        if (instance == null) load();
+        return instance;
+    }
+
+    public static synchronized void load() {
+        TuningConfig config = new TuningConfig();
+        try {
+            if (Files.exists(CONFIG_FILE)) {
+                final TuningConfig read = gson.fromJson(Files.readString(CONFIG_FILE), TuningConfig.class);
+                if (read != null) config = read;
+            }
+        } catch (IOException | JsonParseException e) {
+            DiscordIntegration.LOGGER.error("Failed to read " + CONFIG_FILE + ", using defaults", e);
+        }
+        instance = config;
+        write(config);
+    }
+
+    private static void write(TuningConfig config) {
+        try {
+            Files.createDirectories(CONFIG_FILE.getParent());
+            // Rewritten on every load so newly added settings show up with their defaults
+            Files.writeString(CONFIG_FILE, gson.toJson(config), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            DiscordIntegration.LOGGER.error("Unable to write " + CONFIG_FILE, e);
+        }
+    }
+}
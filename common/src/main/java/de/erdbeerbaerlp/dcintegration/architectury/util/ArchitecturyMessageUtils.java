@@ -1,35 +1,31 @@
 package de.erdbeerbaerlp.dcintegration.architectury.util;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
-import com.mojang.brigadier.StringReader;
-import com.mojang.brigadier.exceptions.CommandSyntaxException;
 import de.erdbeerbaerlp.dcintegration.architectury.DiscordIntegrationMod;
+import de.erdbeerbaerlp.dcintegration.architectury.storage.TuningConfig;
 import de.erdbeerbaerlp.dcintegration.architectury.util.accessors.ShowInTooltipAccessor;
-import de.erdbeerbaerlp.dcintegration.common.DiscordIntegration;
+import de.erdbeerbaerlp.dcintegration.architectury.util.template.Placeholders;
 import de.erdbeerbaerlp.dcintegration.common.storage.Configuration;
 import de.erdbeerbaerlp.dcintegration.common.util.MessageUtils;
 import it.unimi.dsi.fastutil.objects.Object2IntMap;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.entities.MessageEmbed;
 import net.minecraft.ChatFormatting;
-import net.minecraft.commands.arguments.CompoundTagArgument;
 import net.minecraft.core.Holder;
 import net.minecraft.core.component.DataComponentMap;
 import net.minecraft.core.component.DataComponents;
-import net.minecraft.nbt.CompoundTag;
 import net.minecraft.network.chat.Component;
+import net.minecraft.network.chat.HoverEvent;
+import net.minecraft.network.chat.contents.TranslatableContents;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.item.component.ItemLore;
 import net.minecraft.world.item.component.Unbreakable;
 import net.minecraft.world.item.enchantment.Enchantment;
 import net.minecraft.world.item.enchantment.ItemEnchantments;
-import net.minecraft.world.level.Level;
 
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class ArchitecturyMessageUtils extends MessageUtils {
     public static String formatPlayerName(ServerPlayer player) {
@@ -39,79 +35,107 @@ public class ArchitecturyMessageUtils extends MessageUtils {
             return ChatFormatting.stripFormatting(player.getName().getString());
     }
 
-    public static MessageEmbed genItemStackEmbedIfAvailable(final Component component, Level w) {
+    /**
+     * Player placeholders for {@link de.erdbeerbaerlp.dcintegration.architectury.util.template.Template}s, see {@link PlayerContext#placeholders()}
+     */
+    public static Placeholders playerPlaceholders(ServerPlayer player) {
+        return PlayerContext.of(player).placeholders();
+    }
+
+    /**
+     * Builds an embed for the first item shown in a hover of the message's translation arguments, if that item has components
+     */
+    public static MessageEmbed genItemStackEmbedIfAvailable(final Component component) {
         if (!Configuration.instance().forgeSpecific.sendItemInfo) return null;
-        JsonObject json;
-        try {
-            final JsonElement jsonElement = JsonParser.parseString(Component.Serializer.toJson(component, w.registryAccess()));
+        // items are only looked for in translation arguments, like death messages, plain chat lines end here
+        if (!(component.getContents() instanceof TranslatableContents translatable)) return null;
+        for (Object arg : translatable.getArgs()) {
+            if (!(arg instanceof Component argument)) continue;
+            final HoverEvent hover = argument.getStyle().getHoverEvent();
+            if (hover == null || hover.getAction() != HoverEvent.Action.SHOW_ITEM) continue;
+            final ItemStack is = hover.getValue(HoverEvent.Action.SHOW_ITEM).getItemStack();
+            if (is.getComponentsPatch().isEmpty()) continue;
+            return itemEmbed(is);
+        }
+        return null;
+    }
+
+    // #region Item embeds
+    private static final Map<ItemKey, MessageEmbed> itemEmbeds = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ItemKey, MessageEmbed> eldest) {
+            return size() > TuningConfig.instance().outbound.itemEmbedCacheSize;
+        }
+    };
+
+    /**
+     * Cache key matching stacks with the same item and components, regardless of their count
+     */
+    private record ItemKey(ItemStack stack, int hash) {
+        ItemKey(ItemStack stack) {
+            this(stack, ItemStack.hashItemAndComponents(stack));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof ItemKey other && hash == other.hash && ItemStack.isSameItemSameComponents(stack, other.stack);
+        }
 
-            System.out.println(jsonElement);
-            if (jsonElement.isJsonObject())
-                json = jsonElement.getAsJsonObject();
-            else return null;
-        } catch (final IllegalStateException ex) {
-            DiscordIntegration.LOGGER.error("There was an error parsing JSON", ex);
-            return null;
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static MessageEmbed itemEmbed(ItemStack is) {
+        final ItemKey key = new ItemKey(is);
+        synchronized (itemEmbeds) {
+            final MessageEmbed cached = itemEmbeds.get(key);
+            if (cached != null) return cached;
+        }
+        final MessageEmbed embed = buildItemEmbed(is);
+        synchronized (itemEmbeds) {
+            itemEmbeds.put(key, embed);
         }
-        System.out.println(json);
-        if (json.has("with")) {
-            final JsonArray args = json.getAsJsonArray("with");
-            for (JsonElement el : args) {
-                if (el instanceof JsonObject arg1) {
-                    if (arg1.has("hoverEvent")) {
-                        final JsonObject hoverEvent = arg1.getAsJsonObject("hoverEvent");
-                        if (hoverEvent.has("action") && hoverEvent.get("action").getAsString().equals("show_item") && hoverEvent.has("contents")) {
-                            if (hoverEvent.getAsJsonObject("contents").has("components")) {
-                                final JsonObject item = hoverEvent.getAsJsonObject("contents").getAsJsonObject();
-                                try {
-                                    final CompoundTag tag = CompoundTagArgument.compoundTag().parse(new StringReader(item.toString()));
-                                    final ItemStack is = ItemStack.parse(w.registryAccess(), tag).orElseThrow();
+        return embed;
+    }
 
-                                    final DataComponentMap itemTag = is.getComponents();
-                                    final EmbedBuilder b = new EmbedBuilder();
-                                    Component title = itemTag.getOrDefault(DataComponents.CUSTOM_NAME, Component.translatable(is.getItem().getDescriptionId(), is.getItem().getName(is).getString(), null));
-                                    if (title.toString().isEmpty())
-                                        title = Component.translatable(is.getItem().getDescriptionId());
-                                    else
-                                        b.setFooter(is.getItemHolder().getRegisteredName());
-                                    b.setTitle(title.getString());
-                                    final StringBuilder tooltip = new StringBuilder();
-                                    //Add Enchantments
-                                    if (itemTag.has(DataComponents.ENCHANTMENTS)) {
-                                        final ItemEnchantments e = itemTag.get(DataComponents.ENCHANTMENTS);
-                                        if (e != null)
-                                            if (((ShowInTooltipAccessor) e).discordIntegration$showsInTooltip())
-                                                for (Object2IntMap.Entry<Holder<Enchantment>> ench : e.entrySet()) {
-                                                    tooltip.append(ChatFormatting.stripFormatting(ench.getKey().value().getFullname(ench.getKey(),e.getLevel(ench.getKey())).getString())).append("\n");
-                                                }
-                                    }
-                                    //Add Lores
-                                    if (itemTag.has(DataComponents.LORE)) {
-                                        final ItemLore l = itemTag.get(DataComponents.LORE);
-                                        if (l != null)
-                                            for (Component line : l.lines()) {
-                                                tooltip.append("_").append(line.getString()).append("_\n");
-                                            }
-                                    }
-                                    //Add 'Unbreakable' Tag
-                                    if (itemTag.has(DataComponents.UNBREAKABLE)) {
-                                        final Unbreakable unb = itemTag.get(DataComponents.UNBREAKABLE);
-                                        if (unb != null)
-                                            if (unb.showInTooltip())
-                                                tooltip.append("Unbreakable\n");
-                                    }
-                                    b.setDescription(tooltip.toString());
-                                    return b.build();
-                                } catch (CommandSyntaxException ignored) {
-                                    DiscordIntegration.LOGGER.error("Error",ignored);
-                                    //Just go on and ignore it
-                                }
-                            }
-                        }
+    private static MessageEmbed buildItemEmbed(ItemStack is) {
+        final DataComponentMap itemTag = is.getComponents();
+        final EmbedBuilder b = new EmbedBuilder();
+        Component title = itemTag.getOrDefault(DataComponents.CUSTOM_NAME, Component.translatable(is.getItem().getDescriptionId(), is.getItem().getName(is).getString(), null));
+        if (title.toString().isEmpty())
+            title = Component.translatable(is.getItem().getDescriptionId());
+        else
+            b.setFooter(is.getItemHolder().getRegisteredName());
+        b.setTitle(title.getString());
+        final StringBuilder tooltip = new StringBuilder();
+        //Add Enchantments
+        if (itemTag.has(DataComponents.ENCHANTMENTS)) {
+            final ItemEnchantments e = itemTag.get(DataComponents.ENCHANTMENTS);
+            if (e != null)
+                if (((ShowInTooltipAccessor) e).discordIntegration$showsInTooltip())
+                    for (Object2IntMap.Entry<Holder<Enchantment>> ench : e.entrySet()) {
+                        tooltip.append(ChatFormatting.stripFormatting(ench.getKey().value().getFullname(ench.getKey(), e.getLevel(ench.getKey())).getString())).append("\n");
                     }
+        }
+        //Add Lores
+        if (itemTag.has(DataComponents.LORE)) {
+            final ItemLore l = itemTag.get(DataComponents.LORE);
+            if (l != null)
+                for (Component line : l.lines()) {
+                    tooltip.append("_").append(line.getString()).append("_\n");
                 }
-            }
         }
-        return null;
+        //Add 'Unbreakable' Tag
+        if (itemTag.has(DataComponents.UNBREAKABLE)) {
+            final Unbreakable unb = itemTag.get(DataComponents.UNBREAKABLE);
+            if (unb != null)
+                if (unb.showInTooltip())
+                    tooltip.append("Unbreakable\n");
+        }
+        b.setDescription(tooltip.toString());
+        return b.build();
     }
+    // #endregion Item embeds
 }
@@ -8,9 +8,11 @@ import dcshadow.net.kyori.adventure.text.event.ClickEvent;
 import dcshadow.net.kyori.adventure.text.event.HoverEvent;
 import dcshadow.net.kyori.adventure.text.format.Style;
 import dcshadow.net.kyori.adventure.text.format.TextColor;
-import dcshadow.net.kyori.adventure.text.serializer.gson.GsonComponentSerializer;
 import dcshadow.net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
 import de.erdbeerbaerlp.dcintegration.architectury.command.DCCommandSender;
+import de.erdbeerbaerlp.dcintegration.architectury.storage.NameCache;
+import de.erdbeerbaerlp.dcintegration.architectury.util.template.Placeholders;
+import de.erdbeerbaerlp.dcintegration.architectury.util.template.Template;
 import de.erdbeerbaerlp.dcintegration.common.DiscordIntegration;
 import de.erdbeerbaerlp.dcintegration.common.storage.Configuration;
 import de.erdbeerbaerlp.dcintegration.common.storage.Localization;
@@ -27,7 +29,6 @@ import net.dv8tion.jda.api.entities.emoji.Emoji;
 import net.dv8tion.jda.api.entities.emoji.EmojiUnion;
 import net.dv8tion.jda.api.interactions.InteractionHook;
 import net.dv8tion.jda.api.requests.RestAction;
-import net.minecraft.data.registries.VanillaRegistries;
 import net.minecraft.network.protocol.game.ClientboundSoundPacket;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerPlayer;
@@ -63,8 +64,7 @@ public class ArchitecturyServerInterface implements McServerInterface{
                     return;
                 if (!DiscordIntegration.INSTANCE.ignoringPlayers.contains(p.getUUID()) && !(LinkManager.isPlayerLinked(p.getUUID()) && LinkManager.getLink(null, p.getUUID()).settings.ignoreDiscordChatIngame)) {
                     final Map.Entry<Boolean, Component> ping = ComponentUtils.parsePing(msg, p.getUUID(), p.getName().getString());
-                    final String jsonComp = GsonComponentSerializer.gson().serialize(ping.getValue()).replace("\\\\n", "\n");
-                    final net.minecraft.network.chat.Component comp = net.minecraft.network.chat.Component.Serializer.fromJson(jsonComp, p.level().registryAccess());
+                    final net.minecraft.network.chat.Component comp = ComponentConverter.toMinecraft(ping.getValue(), p.level().registryAccess(), true);
                     p.sendSystemMessage(comp, false);
                     if (ping.getKey()) {
                         if (LinkManager.isPlayerLinked(p.getUUID())&&LinkManager.getLink(null, p.getUUID()).settings.pingSound) {
@@ -74,8 +74,7 @@ public class ArchitecturyServerInterface implements McServerInterface{
                 }
             }
             //Send to server console too
-            final String jsonComp = GsonComponentSerializer.gson().serialize(msg).replace("\\\\n", "\n");
-            final net.minecraft.network.chat.Component comp = net.minecraft.network.chat.Component.Serializer.fromJson(jsonComp, VanillaRegistries.createLookup());
+            final net.minecraft.network.chat.Component comp = ComponentConverter.toMinecraft(msg, server.registryAccess(), true);
             server.sendSystemMessage(comp);
         } catch (Exception e) {
             e.printStackTrace();
@@ -98,7 +97,7 @@ public class ArchitecturyServerInterface implements McServerInterface{
 
                 final Component user = Component.text(member.getEffectiveName()).style(memberStyle
                         .clickEvent(ClickEvent.suggestCommand("<@" + member.getId() + ">"))
-                        .hoverEvent(HoverEvent.showText(Component.text(Localization.instance().discordUserHover.replace("%user#tag%", member.getUser().getAsTag()).replace("%user%", member.getEffectiveName()).replace("%id%", member.getUser().getId())))));
+                        .hoverEvent(HoverEvent.showText(Component.text(Template.render(Localization.instance().discordUserHover, new Placeholders().put("user#tag", () -> member.getUser().getAsTag()).put("user", member.getEffectiveName()).put("id", member.getUser().getId()))))));
                 final TextReplacementConfig userReplacer = ComponentUtils.replaceLiteral("%user%", user);
                 final TextReplacementConfig emoteReplacer = ComponentUtils.replaceLiteral("%emote%", emote);
 
@@ -116,9 +115,8 @@ public class ArchitecturyServerInterface implements McServerInterface{
         }
     }
     private void sendReactionMCMessage(ServerPlayer target, Component msgComp) {
-        final String jsonComp = GsonComponentSerializer.gson().serialize(msgComp).replace("\\\\n", "\n");
         try {
-            final net.minecraft.network.chat.Component comp = net.minecraft.network.chat.Component.Serializer.fromJson(jsonComp,target.level().registryAccess());
+            final net.minecraft.network.chat.Component comp = ComponentConverter.toMinecraft(msgComp, target.level().registryAccess(), true);
             target.sendSystemMessage(comp, false);
         } catch (Exception e) {
             e.printStackTrace();
@@ -157,7 +155,7 @@ public class ArchitecturyServerInterface implements McServerInterface{
 
     @Override
     public String getNameFromUUID(UUID uuid) {
-        return server.getSessionService().fetchProfile(uuid,false).profile().getName();
+        return NameCache.instance().get(uuid, id -> server.getSessionService().fetchProfile(id, false).profile().getName());
     }
     @Override
     public boolean playerHasPermissions(UUID player, String... permissions) {
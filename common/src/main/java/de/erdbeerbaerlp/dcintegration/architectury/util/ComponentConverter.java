@@ -0,0 +1,207 @@
+package de.erdbeerbaerlp.dcintegration.architectury.util;
+
+import dcshadow.net.kyori.adventure.key.Key;
+import dcshadow.net.kyori.adventure.text.Component;
+import dcshadow.net.kyori.adventure.text.KeybindComponent;
+import dcshadow.net.kyori.adventure.text.TextComponent;
+import dcshadow.net.kyori.adventure.text.TranslatableComponent;
+import dcshadow.net.kyori.adventure.text.event.ClickEvent;
+import dcshadow.net.kyori.adventure.text.event.HoverEvent;
+import dcshadow.net.kyori.adventure.text.format.NamedTextColor;
+import dcshadow.net.kyori.adventure.text.format.Style;
+import dcshadow.net.kyori.adventure.text.format.TextColor;
+import dcshadow.net.kyori.adventure.text.format.TextDecoration;
+import dcshadow.net.kyori.adventure.text.serializer.gson.GsonComponentSerializer;
+import de.erdbeerbaerlp.dcintegration.architectury.util.accessors.StyleAccessor;
+import net.minecraft.ChatFormatting;
+import net.minecraft.core.HolderLookup;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.data.registries.VanillaRegistries;
+import net.minecraft.network.chat.MutableComponent;
+import net.minecraft.network.chat.contents.KeybindContents;
+import net.minecraft.network.chat.contents.PlainTextContents;
+import net.minecraft.network.chat.contents.TranslatableContents;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.entity.EntityType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Converts between vanilla and Adventure components by walking the component tree, without serializing to JSON in between.
+ * <p>
+ * Text, translatable and keybind components with color, decorations, click events, text and entity hovers, insertion and
+ * font are converted directly. Anything else (score, selector and NBT components, item hovers) falls back to the JSON
+ * round trip for the whole component, so the result is always the same as before.
+ */
+public class ComponentConverter {
+    private ComponentConverter() {
+    }
+
+    // #region Minecraft to Adventure
+    public static Component toAdventure(net.minecraft.network.chat.Component component, HolderLookup.Provider registries) {
+        try {
+            return adventure(component);
+        } catch (Unsupported e) {
+            return GsonComponentSerializer.gson().deserialize(net.minecraft.network.chat.Component.Serializer.toJson(component, registries));
+        }
+    }
+
+    private static Component adventure(net.minecraft.network.chat.Component component) {
+        final Component out;
+        if (component.getContents() instanceof PlainTextContents text) {
+            out = Component.text(text.text());
+        } else if (component.getContents() instanceof TranslatableContents translatable) {
+            final List<Component> args = new ArrayList<>(translatable.getArgs().length);
+            for (Object arg : translatable.getArgs())
+                args.add(arg instanceof net.minecraft.network.chat.Component c ? adventure(c) : Component.text(String.valueOf(arg)));
+            out = Component.translatable().key(translatable.getKey()).fallback(translatable.getFallback()).args(args).build();
+        } else if (component.getContents() instanceof KeybindContents keybind) {
+            out = Component.keybind(keybind.getName());
+        } else throw Unsupported.INSTANCE;
+
+        final List<net.minecraft.network.chat.Component> siblings = component.getSiblings();
+        final List<Component> children = new ArrayList<>(siblings.size());
+        for (net.minecraft.network.chat.Component sibling : siblings)
+            children.add(adventure(sibling));
+        return out.style(adventure(component.getStyle())).children(children);
+    }
+
+    private static Style adventure(net.minecraft.network.chat.Style style) {
+        if (style.isEmpty()) return Style.empty();
+        final StyleAccessor raw = (StyleAccessor) style;
+        final Style.Builder b = Style.style()
+                .decoration(TextDecoration.BOLD, TextDecoration.State.byBoolean(raw.discordIntegration$bold()))
+                .decoration(TextDecoration.ITALIC, TextDecoration.State.byBoolean(raw.discordIntegration$italic()))
+                .decoration(TextDecoration.UNDERLINED, TextDecoration.State.byBoolean(raw.discordIntegration$underlined()))
+                .decoration(TextDecoration.STRIKETHROUGH, TextDecoration.State.byBoolean(raw.discordIntegration$strikethrough()))
+                .decoration(TextDecoration.OBFUSCATED, TextDecoration.State.byBoolean(raw.discordIntegration$obfuscated()))
+                .insertion(style.getInsertion());
+        if (style.getColor() != null) {
+            final int rgb = style.getColor().getValue();
+            final NamedTextColor named = NamedTextColor.namedColor(rgb);
+            b.color(named != null ? named : TextColor.color(rgb));
+        }
+        if (raw.discordIntegration$font() != null)
+            b.font(Key.key(raw.discordIntegration$font().toString()));
+        if (style.getClickEvent() != null)
+            b.clickEvent(ClickEvent.clickEvent(ClickEvent.Action.valueOf(style.getClickEvent().getAction().name()), style.getClickEvent().getValue()));
+        if (style.getHoverEvent() != null) {
+            final net.minecraft.network.chat.HoverEvent hover = style.getHoverEvent();
+            if (hover.getAction() == net.minecraft.network.chat.HoverEvent.Action.SHOW_TEXT) {
+                b.hoverEvent(HoverEvent.showText(adventure(hover.getValue(net.minecraft.network.chat.HoverEvent.Action.SHOW_TEXT))));
+            } else if (hover.getAction() == net.minecraft.network.chat.HoverEvent.Action.SHOW_ENTITY) {
+                final net.minecraft.network.chat.HoverEvent.EntityTooltipInfo entity = hover.getValue(net.minecraft.network.chat.HoverEvent.Action.SHOW_ENTITY);
+                b.hoverEvent(HoverEvent.showEntity(Key.key(BuiltInRegistries.ENTITY_TYPE.getKey(entity.type).toString()), entity.id, entity.name.map(ComponentConverter::adventure).orElse(null)));
+            } else throw Unsupported.INSTANCE;
+        }
+        return b.build();
+    }
+    // #endregion Minecraft to Adventure
+
+    // #region Adventure to Minecraft
+    public static MutableComponent toMinecraft(Component component, HolderLookup.Provider registries) {
+        return toMinecraft(component, () -> registries, false);
+    }
+
+    /**
+     * @param unescapeNewlines turn literal "\n" sequences in text into line breaks, like the JSON path used to
+     */
+    public static MutableComponent toMinecraft(Component component, HolderLookup.Provider registries, boolean unescapeNewlines) {
+        return toMinecraft(component, () -> registries, unescapeNewlines);
+    }
+
+    /**
+     * For callers without a world at hand, the vanilla registries are only built if the JSON fallback is needed
+     */
+    public static MutableComponent toMinecraft(Component component, boolean unescapeNewlines) {
+        return toMinecraft(component, VanillaRegistries::createLookup, unescapeNewlines);
+    }
+
+    private static MutableComponent toMinecraft(Component component, Supplier<HolderLookup.Provider> registries, boolean unescapeNewlines) {
+        try {
+            return minecraft(component, unescapeNewlines);
+        } catch (Unsupported e) {
+            String json = GsonComponentSerializer.gson().serialize(component);
+            if (unescapeNewlines) json = json.replace("\\\\n", "\n");
+            return net.minecraft.network.chat.Component.Serializer.fromJson(json, registries.get());
+        }
+    }
+
+    private static MutableComponent minecraft(Component component, boolean unescapeNewlines) {
+        final MutableComponent out;
+        if (component instanceof TextComponent text) {
+            out = net.minecraft.network.chat.Component.literal(unescape(text.content(), unescapeNewlines));
+        } else if (component instanceof TranslatableComponent translatable) {
+            final Object[] args = new Object[translatable.args().size()];
+            for (int i = 0; i < args.length; i++)
+                args[i] = minecraft(translatable.args().get(i), unescapeNewlines);
+            out = net.minecraft.network.chat.Component.translatableWithFallback(translatable.key(), translatable.fallback(), args);
+        } else if (component instanceof KeybindComponent keybind) {
+            out = net.minecraft.network.chat.Component.keybind(keybind.keybind());
+        } else throw Unsupported.INSTANCE;
+
+        out.setStyle(minecraft(component.style(), unescapeNewlines));
+        for (Component child : component.children())
+            out.append(minecraft(child, unescapeNewlines));
+        return out;
+    }
+
+    private static net.minecraft.network.chat.Style minecraft(Style style, boolean unescapeNewlines) {
+        if (style.isEmpty()) return net.minecraft.network.chat.Style.EMPTY;
+        net.minecraft.network.chat.Style out = net.minecraft.network.chat.Style.EMPTY
+                .withBold(bool(style.decoration(TextDecoration.BOLD)))
+                .withItalic(bool(style.decoration(TextDecoration.ITALIC)))
+                .withUnderlined(bool(style.decoration(TextDecoration.UNDERLINED)))
+                .withStrikethrough(bool(style.decoration(TextDecoration.STRIKETHROUGH)))
+                .withObfuscated(bool(style.decoration(TextDecoration.OBFUSCATED)))
+                .withInsertion(style.insertion());
+        if (style.color() != null) {
+            final ChatFormatting legacy = style.color() instanceof NamedTextColor named ? ChatFormatting.getByName(named.toString()) : null;
+            out = out.withColor(legacy != null ? net.minecraft.network.chat.TextColor.fromLegacyFormat(legacy) : net.minecraft.network.chat.TextColor.fromRgb(style.color().value()));
+        }
+        if (style.font() != null)
+            out = out.withFont(location(style.font()));
+        if (style.clickEvent() != null)
+            out = out.withClickEvent(new net.minecraft.network.chat.ClickEvent(net.minecraft.network.chat.ClickEvent.Action.valueOf(style.clickEvent().action().name()), style.clickEvent().value()));
+        if (style.hoverEvent() != null) {
+            final HoverEvent<?> hover = style.hoverEvent();
+            if (hover.action() == HoverEvent.Action.SHOW_TEXT) {
+                out = out.withHoverEvent(new net.minecraft.network.chat.HoverEvent(net.minecraft.network.chat.HoverEvent.Action.SHOW_TEXT, minecraft((Component) hover.value(), unescapeNewlines)));
+            } else if (hover.action() == HoverEvent.Action.SHOW_ENTITY) {
+                final HoverEvent.ShowEntity entity = (HoverEvent.ShowEntity) hover.value();
+                final EntityType<?> type = BuiltInRegistries.ENTITY_TYPE.getOptional(location(entity.type())).orElseThrow(() -> Unsupported.INSTANCE);
+                out = out.withHoverEvent(new net.minecraft.network.chat.HoverEvent(net.minecraft.network.chat.HoverEvent.Action.SHOW_ENTITY,
+                        new net.minecraft.network.chat.HoverEvent.EntityTooltipInfo(type, entity.id(), entity.name() == null ? null : minecraft(entity.name(), unescapeNewlines))));
+            } else throw Unsupported.INSTANCE;
+        }
+        return out;
+    }
+
+    private static ResourceLocation location(Key key) {
+        final ResourceLocation location = ResourceLocation.tryParse(key.asString());
+        if (location == null) throw Unsupported.INSTANCE;
+        return location;
+    }
+
+    private static Boolean bool(TextDecoration.State state) {
+        return state == TextDecoration.State.NOT_SET ? null : state == TextDecoration.State.TRUE;
+    }
+
+    private static String unescape(String text, boolean unescapeNewlines) {
+        return unescapeNewlines ? text.replace("\\n", "\n") : text;
+    }
+    // #endregion Adventure to Minecraft
+
+    /**
+     * Thrown on the first node the tree walk cannot convert, the caller then takes the JSON route
+     */
+    private static final class Unsupported extends RuntimeException {
+        static final Unsupported INSTANCE = new Unsupported();
+
+        private Unsupported() {
+            super(null, null, false, false);
+        }
+    }
+}
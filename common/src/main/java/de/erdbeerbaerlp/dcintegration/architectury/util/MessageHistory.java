@@ -1,5 +1,8 @@
 package de.erdbeerbaerlp.dcintegration.architectury.util;
 
+import de.erdbeerbaerlp.dcintegration.architectury.storage.NameCache;
+import de.erdbeerbaerlp.dcintegration.architectury.storage.TuningConfig;
+import de.erdbeerbaerlp.dcintegration.architectury.util.history.GroupCommitWriter;
 import de.erdbeerbaerlp.dcintegration.common.DiscordIntegration;
 import de.erdbeerbaerlp.dcintegration.common.storage.Configuration;
 import net.minecraft.commands.CommandSourceStack;
@@ -7,42 +10,76 @@ import net.minecraft.network.chat.PlayerChatMessage;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.server.MinecraftServer;
 import com.google.gson.*;
-import com.google.gson.stream.*;
-import com.google.gson.reflect.TypeToken;
+import de.erdbeerbaerlp.dcintegration.architectury.util.history.HistoryRecord;
+import de.erdbeerbaerlp.dcintegration.architectury.util.history.SegmentStore;
+import de.erdbeerbaerlp.dcintegration.architectury.util.history.StripedHistoryIndex;
 import java.io.*;
 import java.util.*;
 import java.util.stream.*;
-import java.lang.reflect.Type;
 import java.net.UnknownHostException;
 import java.net.URL;
+import java.nio.file.Path;
 import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
 
 // handle duplicate messages
+// thread-safe: called from the server thread, netty threads and the command path
 public class MessageHistory { // ! Convert to Singleton? Note static probably isn't appropriate
     // #region Construct
-    private boolean initialized = false;
+    private static final Path DATA_DIRECTORY = Path.of("DiscordIntegration-Data");
+    private static final Path SEGMENT_DIRECTORY = DATA_DIRECTORY.resolve("History");
+    private volatile boolean initialized = false;
     private boolean enableDuplicatesCheck = loadFromConfig("Config.Messages.ignoreDuplicateMessages");
-    // Keep record of messages in memory
-    private List<SimpleChatMessage> messages = new ArrayList<>();
+    // Keep record of messages in memory, compact columns indexed by playerID + message,
+    // entries expire after the window of their category, locked in stripes by player
+    private final StripedHistoryIndex messages = new StripedHistoryIndex(
+        TuningConfig.instance().history.lockStripes,
+        TuningConfig.instance().history.keepMessageText,
+        Category.maxWindowMillis(),
+        TuningConfig.instance().history.bloomExpectedMessages,
+        TuningConfig.instance().history.bloomFalsePositiveRate
+    );
+    // One memory-mapped segment per day, older segments are deleted on rollover
+    private final SegmentStore store = new SegmentStore(
+        SEGMENT_DIRECTORY,
+        TuningConfig.instance().history.segmentInitialCapacity
+    );
+    // Persists messages off the calling thread
+    private final GroupCommitWriter<HistoryRecord> writer = new GroupCommitWriter<>(
+        "DiscordIntegration History Writer",
+        store::append,
+        store::rewrite,
+        TuningConfig.instance().history.writerQueueCapacity,
+        TuningConfig.instance().history.groupCommitSize,
+        TuningConfig.instance().history.groupCommitIntervalMillis
+    );
 
     public MessageHistory() {
         if (!initialized) init();
     }
 
-    public void init() {
+    public synchronized void init() {
         try {
             if (initialized) return;
-            FileIO.init();
-            messages = FileIO.readAndCleanUpMessages();
+            long started = System.nanoTime();
+            LocalDate today = LocalDate.now();
+            // maps today's segment and deletes the expired ones
+            store.open(today);
+            messages.clear();
+            // single pass over the mapping, records whose window ended are skipped in place
+            int skipped = store.forEachLive(System.currentTimeMillis(), flags -> Category.of(flags).windowMillis(), this::restore);
+            messages.trim();
             // done, record
             initialized = true;
             String x = "DiscordIntegration MessageHistory initialized: " +
-                String.format("loaded %,d messages...", messages.size());
+                String.format("loaded %,d messages (%,d bytes each, %,d expired skipped) in %,d ms...",
+                    messages.size(), messages.heapBytesPerEntry(), skipped,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
             addMessage(new SimpleChatMessage(x));
             DiscordIntegration.LOGGER.info(x);
         }
         catch (Exception e) {
-            messages = emptyList();
+            messages.clear();
             DiscordIntegration.LOGGER.error(
                 "DiscordIntegration MessageHistory not successfully initialized: " +
                 String.format("loaded %,d messages...", messages.size()
@@ -50,6 +87,11 @@ public class MessageHistory { // ! Convert to Singleton? Note static probably is
         }
     }
 
+    // records on disk still count as long as their window has not ended
+    private void restore(HistoryRecord record) {
+        messages.add(record, null, record.timestamp() + Category.of(record.flags()).windowMillis(), System.currentTimeMillis());
+    }
+
     private boolean loadFromConfig(String which) {
         try {
             if (which.equals("Config.Messages.ignoreDuplicateMessages"))
@@ -74,12 +116,16 @@ public class MessageHistory { // ! Convert to Singleton? Note static probably is
     }
 
     // Destruct
-    public void shutdown() {
-        FileIO.cleanUpAndWriteMessages(messages);
+    public synchronized void shutdown() {
         DiscordIntegration.LOGGER.info(String.format(
             "MessageHistory stopping: saving %,d messages...",
             messages.size()
         ));
+        DiscordIntegration.LOGGER.info("MessageHistory " + stats());
+        // blocks until everything queued is on disk
+        writer.shutdown(10, TimeUnit.SECONDS);
+        // the next server start in this JVM loads the history again
+        initialized = false;
     }
     // #endregion Construct
 
@@ -90,12 +136,13 @@ public class MessageHistory { // ! Convert to Singleton? Note static probably is
             // to disable duplicates check, then early return dummy result
             // where hasDuplicate == false
             return new DuplicateCheckResult(false, messages.size(), 0, msg);
-        if (msg.message().contains("starting")) init();
-        if (msg.message().contains("stopping")) shutdown();
+        if (msg.category().windowMillis() <= 0)
+            // window disabled for this kind of message
+            return new DuplicateCheckResult(false, messages.size(), 0, msg);
+        // counts and records in one step, so concurrent reports of the same message cannot both pass
         long amountFound = countDuplicates(msg);
         boolean hasDuplicate = amountFound > 0;
-        if (!hasDuplicate) addMessage(msg);
-        else DiscordIntegration.LOGGER.warn("Duplicate found!");
+        if (hasDuplicate) DiscordIntegration.LOGGER.warn("Duplicate found!");
         return new DuplicateCheckResult(
             hasDuplicate,
             messages.size(),
@@ -111,22 +158,38 @@ public class MessageHistory { // ! Convert to Singleton? Note static probably is
         SimpleChatMessage message
     ) { }
 
+    public Stats stats() {
+        return new Stats(
+            messages.size(),
+            messages.heapBytesPerEntry(),
+            messages.bloomFalsePositiveRate(),
+            messages.bloomHitRatio(),
+            messages.observedFalsePositiveRate()
+        );
+    }
+
+    public record Stats(
+        int entries,
+        long bytesPerEntry,
+        // configured false positive rate of the Bloom filter
+        double bloomFalsePositiveRate,
+        // share of checks that needed the exact lookup
+        double bloomHitRatio,
+        // share of checks where the Bloom filter was wrong
+        double observedFalsePositiveRate
+    ) { }
+
     // private methods
 
     // #region Handle Duplicates
-    private boolean hasDuplicate(SimpleChatMessage msg) {
-        // to fix bugs, just call this and compare with 0
-        return countDuplicates(msg) > 0;
-    }
-
+    // adds the message if it is not a duplicate
     private long countDuplicates(SimpleChatMessage msg) {
         try {
             // if any errors, just return 0
             if (msg == null || messages == null)
                 throw new NullPointerException();
-            if (messages.size() <= 0) return 0;
 
-            return filterDuplicates(msg).count();
+            return lookupDuplicates(msg);
         }
         catch (Exception e) {
             String errorMsg = String.format("Exception in countDuplicates(SimpleChatMessage %s)", msg.toString());
@@ -135,14 +198,13 @@ public class MessageHistory { // ! Convert to Singleton? Note static probably is
         }
     }
 
-    private Stream<SimpleChatMessage> filterDuplicates(SimpleChatMessage msg) {
+    private long lookupDuplicates(SimpleChatMessage msg) {
         // all errors caught in public callers, if any
-        return messages.stream()
-            // date needs to match but time doesn't matter, so just filter
-            .filter(SimpleChatMessage::matchesToday)
-            // only returns exact matches of playerID AND message
-            .filter(element -> element.matchesPlayerID(msg))
-            .filter(element -> element.matchesMessage(msg));
+        HistoryRecord record = msg.toRecord();
+        // only returns exact matches of playerID AND message within the window
+        long found = messages.checkAndAdd(record, msg.message(), expiresAt(msg, record), System.currentTimeMillis());
+        if (found == 0) writer.append(record);
+        return found;
     }
     // #endregion Handle Duplicates
 
@@ -150,48 +212,35 @@ public class MessageHistory { // ! Convert to Singleton? Note static probably is
     // note: file should be synced with messages List or behavior will not be correct
     private void addMessage(SimpleChatMessage msg) {
         if (msg == null) throw new NullPointerException();
-        messages.add(msg);
-        FileIO.appendMessage(msg);
+        HistoryRecord record = msg.toRecord();
+        messages.add(record, msg.message(), expiresAt(msg, record), System.currentTimeMillis());
+        writer.append(record);
+    }
+
+    private static long expiresAt(SimpleChatMessage msg, HistoryRecord record) {
+        return record.timestamp() + msg.category().windowMillis();
     }
     // #endregion Add
 
     // #region Remove
-    // note: file should be synced with messages List or behavior will not be correct
+    // note: segments of other days are deleted by the store itself, only memory needs cleaning
     private void removeOldMessages() {
-        messages.removeIf(element -> !element.matchesToday());
-        FileIO.writeMessages(messages); // sync with file
+        messages.expire(System.currentTimeMillis());
     }
 
     private void remove(SimpleChatMessage msg) {
-        messages.removeIf(element -> !element.matchesToday());
-        FileIO.writeMessages(messages); // sync with file
-    }
-
-    private static List<SimpleChatMessage> removeOldMessages(List<SimpleChatMessage> msgs) {
-        msgs.removeIf(element -> !element.matchesToday());
-        return msgs;
+        removeOldMessages();
+        writer.rewrite(messages.records()); // sync with file
     }
     // #endregion Remove
 
     // #region Accessors
-    private static String toString(List<SimpleChatMessage> msgs) {
-        List<String> l = msgs.stream()
-            .map(SimpleChatMessage::toString)
+    private static String toString(StripedHistoryIndex msgs) {
+        List<String> l = msgs.records().stream()
+            .map(HistoryRecord::toString)
             .collect(Collectors.toList());
         return String.join(",\n", l);
     }
-
-    private static List<SimpleChatMessage> emptyList() {
-        return new ArrayList<>();
-    }
-
-    private static int lastIndex(List<JsonObject> list) {
-        return list.size() - 1;
-    }
-
-    private static JsonObject backOf(List<JsonObject> list) {
-        return list.get(lastIndex(list));
-    }
     // #endregion Accessors
 
     // #region Useful Overloaded Methods
@@ -203,6 +252,10 @@ public class MessageHistory { // ! Convert to Singleton? Note static probably is
         return checkDuplicate(new SimpleChatMessage(sender, message));
     }
 
+    public DuplicateCheckResult checkDuplicate(ServerPlayer sender, String message, Category category) {
+        return checkDuplicate(new SimpleChatMessage(sender, message, category));
+    }
+
     public DuplicateCheckResult checkDuplicate(MinecraftServer server, String message) {
         return checkDuplicate(new SimpleChatMessage(server, message));
     }
@@ -217,14 +270,53 @@ public class MessageHistory { // ! Convert to Singleton? Note static probably is
     }
     // #endregion Useful Overloaded Methods
 
+    // kinds of messages, each with its own duplicate window
+    public enum Category {
+        CHAT,
+        JOIN_LEAVE,
+        DEATH,
+        COMMAND,
+        SERVER,
+        INTERNAL;
+
+        private static final Category[] VALUES = values();
+
+        public long windowMillis() {
+            TuningConfig.Windows windows = TuningConfig.instance().history.windows;
+            return switch (this) {
+                case CHAT -> windows.chatMillis;
+                case JOIN_LEAVE -> windows.joinLeaveMillis;
+                case DEATH -> windows.deathMillis;
+                case COMMAND -> windows.commandMillis;
+                case SERVER -> windows.serverMillis;
+                case INTERNAL -> windows.internalMillis;
+            };
+        }
+
+        // records written by older versions have no category in their flags
+        public static Category of(int flags) {
+            return flags >= 0 && flags < VALUES.length ? VALUES[flags] : CHAT;
+        }
+
+        public static long maxWindowMillis() {
+            long max = 0;
+            for (Category category : VALUES)
+                max = Math.max(max, category.windowMillis());
+            return max;
+        }
+    }
+
     // nested class for message instances in List
-    public class SimpleChatMessage {
+    public static class SimpleChatMessage {
         // #region Construct
         // Properties
         private String playerID = new String(); // ! change from String to UUID? (needs to be able to stay as a Nullable)
-        private String username = new String();
+        // volatile: filled in later by the asynchronous lookup if the name was not known yet
+        private volatile String username = new String();
         private String message = new String();
         private LocalDate date = LocalDate.now();
+        private long timestamp = System.currentTimeMillis();
+        private Category category = Category.CHAT;
 
         // Constructors
         // non-default
@@ -237,11 +329,17 @@ public class MessageHistory { // ! Convert to Singleton? Note static probably is
         }
 
         public SimpleChatMessage(ServerPlayer sender, String text) {
+            // for chat relayed as text
+            this(sender, text, Category.CHAT);
+        }
+
+        public SimpleChatMessage(ServerPlayer sender, String text, Category category) {
             // for non-chat-based events
             setPlayerID(sender);
             setUsername(sender);
             setMessage(text);
             setDate();
+            this.category = category;
         }
 
         public SimpleChatMessage(MinecraftServer server, String text) {
@@ -250,6 +348,7 @@ public class MessageHistory { // ! Convert to Singleton? Note static probably is
             setUsername(server);
             setMessage(text);
             setDate();
+            category = Category.SERVER;
         }
 
         public SimpleChatMessage(CommandSourceStack source, String text) {
@@ -258,6 +357,7 @@ public class MessageHistory { // ! Convert to Singleton? Note static probably is
             setUsername(source);
             setMessage(text);
             setDate();
+            category = Category.COMMAND;
         }
 
         public SimpleChatMessage(String text) {
@@ -266,6 +366,7 @@ public class MessageHistory { // ! Convert to Singleton? Note static probably is
             setUsername("DiscordIntegration");
             setMessage(text);
             setDate();
+            category = Category.INTERNAL;
         }
         // #endregion Construct
 
@@ -373,10 +474,16 @@ public class MessageHistory { // ! Convert to Singleton? Note static probably is
             }
         }
 
+        // never touches the network: profile first, then the cache, remote lookups fill the name in later
         private String toUsername(ServerPlayer sender) {
             try {
                 if (sender == null) throw new NullPointerException();
-                return FileIO.fetchUsername(toPlayerID(sender));
+                String name = sender.getGameProfile().getName();
+                if (name != null && !name.isBlank()) {
+                    NameCache.instance().put(sender.getUUID(), name);
+                    return name;
+                }
+                return NameCache.instance().getIfPresent(sender.getUUID(), MessageHistory::fetchUsername);
             }
             catch (Exception e) {
                 return null;
@@ -409,6 +516,11 @@ public class MessageHistory { // ! Convert to Singleton? Note static probably is
         private void setUsername(ServerPlayer sender) {
             try {
                 username = toUsername(sender);
+                // the cache already started the remote lookup, take its result once it is there
+                if (username == null && sender != null)
+                    NameCache.instance().lookup(sender.getUUID(), MessageHistory::fetchUsername).thenAccept(fetched -> {
+                        if (fetched != null) username = fetched;
+                    });
             }
             catch (NullPointerException e) {
                 username = null;
@@ -496,6 +608,7 @@ public class MessageHistory { // ! Convert to Singleton? Note static probably is
         // #region Setters
         private void setDate() {
             try {
+                timestamp = System.currentTimeMillis();
                 date = LocalDate.now();
             }
             catch (Exception e) {
@@ -504,6 +617,15 @@ public class MessageHistory { // ! Convert to Singleton? Note static probably is
         }
         // #endregion Setters
 
+        public Category category() {
+            return category == null ? Category.CHAT : category;
+        }
+
+        // fixed-layout form that is indexed and persisted, the category goes into the flags
+        public HistoryRecord toRecord() {
+            return HistoryRecord.of(playerID(), message(), timestamp, category().ordinal());
+        }
+
         public String toString() {
             // error handling done in individual get methods
             return "{\n" +
@@ -514,218 +636,48 @@ public class MessageHistory { // ! Convert to Singleton? Note static probably is
             "}";
         }
         // #endregion Accessors
-
-        // #region Match Helpers
-        private boolean matchesMessage(SimpleChatMessage msg) {
-            try {
-                if (msg == null || message == null) throw new NullPointerException();
-                return msg.message().equals(message);
-            }
-            catch (NullPointerException e) {
-                return false;
-            }
-        }
-
-        private boolean matchesPlayerID(SimpleChatMessage msg) {
-            try {
-                if (playerID == null || msg == null) throw new NullPointerException();
-                return msg.playerID().equals(playerID);
-            }
-            catch (Exception e) {
-                return false;
-            }
-        }
-
-        private boolean matchesToday() {
-            try {
-                if (date == null) throw new NullPointerException();
-                return LocalDate.now().isEqual(date); // ours is today
-            }
-            catch (NullPointerException e) {
-                DiscordIntegration.LOGGER.error("Error: date should never be null:", e);
-                return false;
-            }
-        }
-        // #endregion Match Helpers
     }
 
-    private class FileIO {
-        // #region Construct
-        private static final String JSON_FILE_PATH = "DiscordIntegration-Data/History.json";
-        private static final Gson gson = new GsonBuilder()
-            .setPrettyPrinting()
-            .registerTypeAdapter(LocalDate.class, new LocalDateAdapter())
-            .create();
-
-        // Custom TypeAdapter for LocalDate
-        private static class LocalDateAdapter extends TypeAdapter<LocalDate> {
-            @Override
-            public void write(JsonWriter out, LocalDate value) throws IOException {
-                if (value == null) out.nullValue();
-                else out.value(value.toString());
-            }
-
-            @Override
-            public LocalDate read(JsonReader in) throws IOException {
-                if (in.peek() == JsonToken.NULL) {
-                    in.nextNull();
-                    return null;
-                }
-                return LocalDate.parse(in.nextString());
-            }
-        }
-
-        public static void init() {
-            ensureHistoryFileExists();
-        }
-
-        private static void ensureHistoryFileExists() {
-            try {
-            File file = new File(JSON_FILE_PATH);
-            mkdir(file.getParentFile());
-            createFile(file);
-            }
-            catch (IOException e) {
-                DiscordIntegration.LOGGER.error("Error in ensureHistoryFileExists():", e);
-            }
-        }
-        // #endregion Construct
-
-        // #region Read
-        public static List<SimpleChatMessage> readMessages() {
-            try (BufferedReader reader = new BufferedReader(new FileReader(JSON_FILE_PATH))) {
-                checkEmptyFile(reader); // throws IOException if empty
-                List<SimpleChatMessage> msgs = fromJson(reader);
-                if (msgs == null) throw new FileNotFoundException();
-                return msgs;
-            }
-            catch (IOException e) {
-                DiscordIntegration.LOGGER.error("Error reading messages.");
-                // If the file doesn't exist or file is empty, create a new empty list
-                return emptyList();
-            }
-        }
-
-        public static List<SimpleChatMessage> readAndCleanUpMessages() {
-            // read messages from file to memory
-            List<SimpleChatMessage> msgs = FileIO.readMessages();
-
-            long previousSize = msgs.size();
-            // clean up the list of messages on memory
-            msgs = removeOldMessages(msgs);
-
-            if (msgs.size() != previousSize)
-                // update messages on file to match cleaned list on memory
-                FileIO.writeMessages(msgs);
-
-            // return a copy of the fresh list
-            return msgs;
-        }
-
-        public static String fetchUsername(String uuid) {
-            try (InputStreamReader reader = new InputStreamReader(
-                new URL(String.format(
-                    "https://playerdb.co/api/player/minecraft/%s",
-                    uuid.replace("-", "")
-                )).openStream()
-            )) {
-                JsonObject response = gson.fromJson(reader, JsonObject.class);
-                JsonObject data = getAsJsonObject(response, "data");
-                JsonObject player = getAsJsonObject(data, "player");
-                return getAsString(player, "username");
-            }
-            catch (UnknownHostException e) {
-                DiscordIntegration.LOGGER.warn("No internet, unable to fetch usernames.");
-                return null;
-            }
-            catch (JsonSyntaxException e) {
-                DiscordIntegration.LOGGER.warn("Failed to parse usernames JSON response.");
-                return null;
-            }
-            catch (Exception e) {
-                DiscordIntegration.LOGGER.warn("Failed to fetch usernames:", e);
-                return null;
-            }
-        }
-
-        private static JsonObject getAsJsonObject(JsonObject response, String name) throws JsonSyntaxException {
-            if (!response.has(name)) throw new JsonSyntaxException("Missing property " + name);
-            return response.getAsJsonObject(name);
-        }
-
-        private static String getAsString(JsonObject response, String name) throws JsonSyntaxException {
-            if (!response.has(name)) throw new JsonSyntaxException("Missing property " + name);
-            return response.get(name).getAsString();
-        }
-
-        private static List<SimpleChatMessage> fromJson(BufferedReader reader) throws JsonSyntaxException {
-            Type type = new TypeToken<ArrayList<SimpleChatMessage>>() {}.getType();
-            return gson.fromJson(reader, type);
+    // #region Username Lookup
+    private static final Gson gson = new Gson();
+
+    // only called by NameCache on its lookup threads, never on the server or netty threads
+    private static String fetchUsername(UUID uuid) {
+        try (InputStreamReader reader = new InputStreamReader(
+            new URL(String.format(
+                "https://playerdb.co/api/player/minecraft/%s",
+                uuid.toString().replace("-", "")
+            )).openStream()
+        )) {
+            JsonObject response = gson.fromJson(reader, JsonObject.class);
+            JsonObject data = getAsJsonObject(response, "data");
+            JsonObject player = getAsJsonObject(data, "player");
+            return getAsString(player, "username");
+        }
+        catch (UnknownHostException e) {
+            DiscordIntegration.LOGGER.warn("No internet, unable to fetch usernames.");
+            return null;
+        }
+        catch (JsonSyntaxException e) {
+            DiscordIntegration.LOGGER.warn("Failed to parse usernames JSON response.");
+            return null;
         }
-
-        private static void checkEmptyFile(BufferedReader reader) throws IOException {
-            reader.mark(1); // Mark the beginning of the file
-            if (reader.read() == -1) // -1 indicates end of file
-                throw new IOException("File is empty, creating empty array...");
-            reader.reset(); // Reset the reader to the beginning of the file
-        }
-        // #endregion Read
-
-        // #region Write
-        public static void writeMessages(List<SimpleChatMessage> msgs) {
-            try (FileWriter writer = new FileWriter(JSON_FILE_PATH)) {
-                if (msgs == null) throw new NullPointerException();
-                toJson(writer, msgs);
-                writer.close();
-            }
-            catch (Exception e) {
-                DiscordIntegration.LOGGER.error("Error: ", e);
-            }
-        }
-
-        public static void cleanUpAndWriteMessages(List<SimpleChatMessage> msgs) {
-            long previousSize = msgs.size();
-            // clean up the list of messages on memory
-            msgs = removeOldMessages(msgs);
-
-            if (msgs.size() != previousSize)
-                // update messages on file to match cleaned list on memory
-                FileIO.writeMessages(msgs);
-        }
-
-        public static void appendMessage(SimpleChatMessage message) {
-            try {
-                List<SimpleChatMessage> msgs = readMessages();
-                long previousCount = msgs.stream().count();
-                long previousSize = msgs.size();
-                msgs.add(message);
-                if (msgs.stream().count() != previousCount + 1 ||
-                    msgs.size() != previousSize + 1)
-                    throw new Exception("Message not added properly");
-                writeMessages(msgs);
-            }
-            catch (Exception e) {
-                DiscordIntegration.LOGGER.error("Error: ", e);
-            }
-        }
-
-        private static void mkdir(File parentDir) throws IOException {
-            boolean success = parentDir.exists() || parentDir.mkdirs();
-            if (!success)
-                throw new IOException("Could not create directory: " + parentDir);
+        catch (Exception e) {
+            DiscordIntegration.LOGGER.warn("Failed to fetch usernames:", e);
+            return null;
         }
+    }
 
-        private static void createFile(File file) throws IOException {
-            boolean success = file.exists() || file.createNewFile();
-            if (!(success))
-                throw new IOException("Could not create file: " + file);
-        }
+    private static JsonObject getAsJsonObject(JsonObject response, String name) throws JsonSyntaxException {
+        if (!response.has(name)) throw new JsonSyntaxException("Missing property " + name);
+        return response.getAsJsonObject(name);
+    }
 
-        private static void toJson(FileWriter writer, List<SimpleChatMessage> msgs) {
-            gson.toJson(msgs, writer);
-        }
-        // #endregion Write
+    private static String getAsString(JsonObject response, String name) throws JsonSyntaxException {
+        if (!response.has(name)) throw new JsonSyntaxException("Missing property " + name);
+        return response.get(name).getAsString();
     }
+    // #endregion Username Lookup
 
     public static class Test {
         public static void testCheckEmptyFile() {
@@ -0,0 +1,145 @@
+package de.erdbeerbaerlp.dcintegration.architectury.util;
+
+import de.erdbeerbaerlp.dcintegration.architectury.util.template.Placeholders;
+import de.erdbeerbaerlp.dcintegration.architectury.util.template.Template;
+import de.erdbeerbaerlp.dcintegration.common.storage.Configuration;
+import de.erdbeerbaerlp.dcintegration.common.util.TextColors;
+import net.minecraft.network.chat.Component;
+import net.minecraft.server.level.ServerPlayer;
+
+import java.awt.Color;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Values derived from a player that every Discord-bound message needs, computed once per session instead of once per message.
+ * <p>
+ * Created when the player joins and dropped when they disconnect. The formatted name is recomputed when the tab list
+ * display name changes, the avatar URL when the configured URL template changes (config reload).
+ * Immutable apart from those two, so a context can be handed to other threads.
+ */
+public final class PlayerContext {
+    private static final Map<UUID, PlayerContext> contexts = new ConcurrentHashMap<>();
+
+    private final UUID uuid;
+    private final String uuidString;
+    private final String uuidDashless;
+    private final String name;
+    private final Color color;
+    private final String colorRGB;
+    private volatile DisplayName displayName;
+    private volatile AvatarURL avatarURL;
+
+    private record DisplayName(Component source, String formatted) {
+    }
+
+    private record AvatarURL(String template, String url, boolean random) {
+    }
+
+    private PlayerContext(ServerPlayer player) {
+        this.uuid = player.getUUID();
+        this.uuidString = uuid.toString();
+        this.uuidDashless = uuidString.replace("-", "");
+        this.name = player.getName().getString();
+        this.color = TextColors.generateFromUUID(uuid);
+        this.colorRGB = String.valueOf(color.getRGB());
+        this.displayName = new DisplayName(player.getTabListDisplayName(), ArchitecturyMessageUtils.formatPlayerName(player));
+    }
+
+    /**
+     * Starts a new session context, replacing any left over from an earlier session
+     */
+    public static PlayerContext join(ServerPlayer player) {
+        final PlayerContext context = new PlayerContext(player);
+        contexts.put(context.uuid, context);
+        return context;
+    }
+
+    /**
+     * Context of an online player, brought up to date with the player's current display name
+     */
+    public static PlayerContext of(ServerPlayer player) {
+        final PlayerContext context = contexts.computeIfAbsent(player.getUUID(), uuid -> new PlayerContext(player));
+        context.refresh(player);
+        return context;
+    }
+
+    /**
+     * Ends the session of the player, the returned context can still be used for the leave message
+     */
+    public static PlayerContext leave(ServerPlayer player) {
+        final PlayerContext context = contexts.remove(player.getUUID());
+        if (context == null) return new PlayerContext(player);
+        context.refresh(player);
+        return context;
+    }
+
+    public static void clear() {
+        contexts.clear();
+    }
+
+    private void refresh(ServerPlayer player) {
+        // the tab list name is only replaced when it changes, so comparing the reference is enough
+        final Component source = player.getTabListDisplayName();
+        if (source != displayName.source())
+            displayName = new DisplayName(source, ArchitecturyMessageUtils.formatPlayerName(player));
+    }
+
+    public UUID uuid() {
+        return uuid;
+    }
+
+    public String uuidString() {
+        return uuidString;
+    }
+
+    public String uuidDashless() {
+        return uuidDashless;
+    }
+
+    /**
+     * Plain account name
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Name as shown on Discord, see {@link ArchitecturyMessageUtils#formatPlayerName(ServerPlayer)}
+     */
+    public String displayName() {
+        return displayName.formatted();
+    }
+
+    public Color color() {
+        return color;
+    }
+
+    public String avatarURL() {
+        final String template = Configuration.instance().webhook.playerAvatarURL;
+        AvatarURL avatar = avatarURL;
+        // templates using %randomUUID% render a new URL every time
+        if (avatar == null || avatar.random() || !avatar.template().equals(template)) {
+            avatar = new AvatarURL(template, Placeholders.avatarURL(uuid, name), Template.of(template).uses("randomUUID"));
+            avatarURL = avatar;
+        }
+        return avatar.url();
+    }
+
+    /**
+     * Placeholders every player related template supports: %uuid%, %uuid_dashless%, %name%, %player%, %randomUUID%,
+     * %playerColor% and %avatarURL%
+     */
+    public Placeholders placeholders() {
+        final String formatted = displayName();
+        return new Placeholders()
+                .put("uuid", uuidString)
+                .put("uuid_dashless", uuidDashless)
+                .put("name", formatted)
+                .put("player", formatted)
+                .put("randomUUID", () -> UUID.randomUUID().toString())
+                .put("playerColor", colorRGB)
+                .put("avatarURL", this::avatarURL);
+    }
+}
@@ -0,0 +1,20 @@
+package de.erdbeerbaerlp.dcintegration.architectury.util.accessors;
+
+import net.minecraft.resources.ResourceLocation;
+
+/**
+ * Raw style fields, the public getters collapse "not set" into false or the default font
+ */
+public interface StyleAccessor {
+    Boolean discordIntegration$bold();
+
+    Boolean discordIntegration$italic();
+
+    Boolean discordIntegration$underlined();
+
+    Boolean discordIntegration$strikethrough();
+
+    Boolean discordIntegration$obfuscated();
+
+    ResourceLocation discordIntegration$font();
+}
@@ -0,0 +1,73 @@
+package de.erdbeerbaerlp.dcintegration.architectury.util.history;
+
+import java.util.Arrays;
+
+/**
+ * Bloom filter over precomputed 64-bit fingerprints, probe positions are derived by double hashing the two halves.
+ * A negative answer is definite, a positive one still needs to be confirmed by an exact lookup.
+ */
+public class BloomFilter {
+    private final long[] bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final int expectedInsertions;
+    private final double falsePositiveRate;
+    private int insertions;
+
+    /**
+     * Sizes the filter for the given number of insertions at the given false positive rate
+     */
+    public BloomFilter(int expectedInsertions, double falsePositiveRate) {
+        this.expectedInsertions = Math.max(1, expectedInsertions);
+        this.falsePositiveRate = Math.min(0.5, Math.max(1e-9, falsePositiveRate));
+        final double ln2 = Math.log(2);
+        final long optimalBits = (long) Math.ceil(-this.expectedInsertions * Math.log(this.falsePositiveRate) / (ln2 * ln2));
+        this.bits = new long[(int) Math.max(1, (optimalBits + 63) / 64)];
+        this.bitCount = bits.length * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / this.expectedInsertions * ln2));
+    }
+
+    public void put(long fingerprint) {
+        final int h1 = (int) fingerprint;
+        final int h2 = (int) (fingerprint >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            final long bit = index(h1 + i * h2);
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+        insertions++;
+    }
+
+    public boolean mightContain(long fingerprint) {
+        final int h1 = (int) fingerprint;
+        final int h2 = (int) (fingerprint >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            final long bit = index(h1 + i * h2);
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(bits, 0);
+        insertions = 0;
+    }
+
+    /**
+     * True once more elements were inserted than the filter was sized for, the false positive rate then exceeds the configured one
+     */
+    public boolean isSaturated() {
+        return insertions > expectedInsertions;
+    }
+
+    public int expectedInsertions() {
+        return expectedInsertions;
+    }
+
+    public double falsePositiveRate() {
+        return falsePositiveRate;
+    }
+
+    private long index(int combined) {
+        return (combined & Integer.MAX_VALUE) % bitCount;
+    }
+}
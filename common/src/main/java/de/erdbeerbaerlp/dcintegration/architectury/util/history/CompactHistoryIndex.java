@@ -0,0 +1,285 @@
+package de.erdbeerbaerlp.dcintegration.architectury.util.history;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sliding-window history, stored column-wise in primitive fastutil lists.
+ * <p>
+ * Every entry expires after the window of its category. Expiry is driven by a timing wheel with one-second slots:
+ * advancing the clock empties the slots that passed and frees their entries, so expiry costs O(1) per entry and the
+ * number of live entries is bounded by the traffic within the longest window instead of the traffic per day.
+ * Freed entries are reused by later additions.
+ * <p>
+ * An entry costs 44 bytes in the columns (player UUID as two longs, message hash, timestamp, category, chain link) plus
+ * its share of the power-of-two sized hash table and a wheel slot reference, 60 to 80 bytes in total. The target is to
+ * stay below 80 bytes per entry without message text, compared to several hundred bytes for a {@code SimpleChatMessage}
+ * with its strings and {@code LocalDate}. Message text is only kept, interned, if enabled.
+ * <p>
+ * Lookups hash the key into a 64-bit fingerprint. Two generations of Bloom filters, rotated once per longest window,
+ * answer the common "not a duplicate" case without touching the map; on a possible hit the map points at the newest entry
+ * with that fingerprint and {@code next} chains to older ones, every candidate is compared on all fields.
+ * <p>
+ * Not thread-safe, {@link StripedHistoryIndex} guards it for concurrent use.
+ */
+public class CompactHistoryIndex {
+    private static final int NO_ENTRY = -1;
+    private static final int FREE = -1;
+
+    private final boolean keepText;
+    private final LongArrayList playerMsb = new LongArrayList();
+    private final LongArrayList playerLsb = new LongArrayList();
+    private final LongArrayList messageHash = new LongArrayList();
+    private final LongArrayList timestamp = new LongArrayList();
+    private final IntArrayList category = new IntArrayList();
+    private final IntArrayList next = new IntArrayList();
+    private final ObjectArrayList<String> text;
+    private final IntArrayList free = new IntArrayList();
+    private final Long2IntOpenHashMap heads = new Long2IntOpenHashMap();
+    private final IntArrayList[] wheel;
+    private long wheelSecond;
+    private final long generationMillis;
+    private long generationStart;
+    private BloomFilter current;
+    private BloomFilter previous;
+    private int size;
+    private long lookups;
+    private long bloomHits;
+    private long falsePositives;
+
+    /**
+     * @param maxWindowMillis longest window any entry can have, sizes the timing wheel and the Bloom filter rotation
+     */
+    public CompactHistoryIndex(boolean keepText, long maxWindowMillis, int bloomExpectedInsertions, double bloomFalsePositiveRate) {
+        this.keepText = keepText;
+        this.text = keepText ? new ObjectArrayList<>() : null;
+        this.generationMillis = Math.max(1000, maxWindowMillis);
+        this.wheel = new IntArrayList[(int) ((generationMillis + 999) / 1000) + 2];
+        for (int i = 0; i < wheel.length; i++)
+            wheel[i] = new IntArrayList();
+        this.current = new BloomFilter(bloomExpectedInsertions, bloomFalsePositiveRate);
+        this.previous = new BloomFilter(bloomExpectedInsertions, bloomFalsePositiveRate);
+        final long now = System.currentTimeMillis();
+        this.wheelSecond = now / 1000;
+        this.generationStart = now;
+        heads.defaultReturnValue(NO_ENTRY);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds an entry that expires at {@code expiresAt}, entries that already expired are ignored.
+     * The clock has to be advanced with {@link #expire(long)} first.
+     *
+     * @param message original message text, only stored if text keeping is enabled, may be null
+     */
+    public void add(HistoryRecord record, String message, long expiresAt) {
+        final long expirySecond = (expiresAt + 999) / 1000;
+        if (expirySecond <= wheelSecond) return;
+        final int entry = allocate();
+        playerMsb.set(entry, record.playerMsb());
+        playerLsb.set(entry, record.playerLsb());
+        messageHash.set(entry, record.messageHash());
+        timestamp.set(entry, record.timestamp());
+        category.set(entry, record.flags());
+        if (keepText) text.set(entry, message == null ? null : message.intern());
+        final long fingerprint = fingerprint(record.playerMsb(), record.playerLsb(), record.messageHash());
+        next.set(entry, heads.get(fingerprint));
+        heads.put(fingerprint, entry);
+        // the wheel is longer than the longest window, so a slot is never reached early
+        wheel[(int) (Math.min(expirySecond, wheelSecond + wheel.length - 1) % wheel.length)].add(entry);
+        size++;
+        current.put(fingerprint);
+        if (current.isSaturated()) rebuildBloom(current.expectedInsertions() * 2);
+    }
+
+    /**
+     * Counts live entries with the same player and message. Text is only compared when both sides have it.
+     */
+    public int count(HistoryRecord record, String message) {
+        final long fingerprint = fingerprint(record.playerMsb(), record.playerLsb(), record.messageHash());
+        lookups++;
+        if (!current.mightContain(fingerprint) && !previous.mightContain(fingerprint)) return 0;
+        bloomHits++;
+        int found = 0;
+        for (int entry = heads.get(fingerprint); entry != NO_ENTRY; entry = next.getInt(entry)) {
+            if (playerMsb.getLong(entry) == record.playerMsb()
+                    && playerLsb.getLong(entry) == record.playerLsb()
+                    && messageHash.getLong(entry) == record.messageHash()
+                    && textMatches(entry, message))
+                found++;
+        }
+        if (found == 0) falsePositives++;
+        return found;
+    }
+
+    /**
+     * Advances the clock, freeing every entry whose window ended and rotating the Bloom filters
+     */
+    public void expire(long now) {
+        final long second = now / 1000;
+        // slots past one full turn were already emptied, visiting each slot once is enough
+        final long steps = Math.min(second - wheelSecond, wheel.length);
+        for (long i = 1; i <= steps; i++) {
+            final IntArrayList slot = wheel[(int) ((wheelSecond + i) % wheel.length)];
+            for (int j = 0; j < slot.size(); j++)
+                remove(slot.getInt(j));
+            slot.clear();
+        }
+        if (second > wheelSecond) wheelSecond = second;
+        // anything still live was added within the last window, so it is in the current or the previous generation
+        if (now - generationStart >= generationMillis) {
+            final BloomFilter cleared = previous;
+            cleared.clear();
+            previous = current;
+            current = cleared;
+            generationStart = now;
+        }
+    }
+
+    public void clear() {
+        playerMsb.clear();
+        playerLsb.clear();
+        messageHash.clear();
+        timestamp.clear();
+        category.clear();
+        next.clear();
+        if (keepText) text.clear();
+        free.clear();
+        heads.clear();
+        for (IntArrayList slot : wheel)
+            slot.clear();
+        current.clear();
+        previous.clear();
+        size = 0;
+    }
+
+    public void trim() {
+        heads.trim();
+        for (IntArrayList slot : wheel)
+            slot.trim();
+    }
+
+    public List<HistoryRecord> records() {
+        final List<HistoryRecord> records = new ArrayList<>(size);
+        for (int entry = 0; entry < category.size(); entry++) {
+            if (category.getInt(entry) == FREE) continue;
+            records.add(new HistoryRecord(playerMsb.getLong(entry), playerLsb.getLong(entry), messageHash.getLong(entry), timestamp.getLong(entry), category.getInt(entry)));
+        }
+        return records;
+    }
+
+    /**
+     * Approximate retained heap of the columns, the hash table and the wheel, excluding the interned strings themselves
+     */
+    public long heapBytes() {
+        long bytes = 8L * (playerMsb.elements().length + playerLsb.elements().length + messageHash.elements().length + timestamp.elements().length)
+                + 4L * (category.elements().length + next.elements().length + free.elements().length);
+        if (keepText) bytes += 4L * text.elements().length; // compressed references
+        for (IntArrayList slot : wheel)
+            bytes += 4L * slot.elements().length;
+        // key and value arrays of the open hash map, one extra slot for the null key
+        bytes += 12L * (HashCommon.arraySize(Math.max(heads.size(), 1), Long2IntOpenHashMap.DEFAULT_LOAD_FACTOR) + 1);
+        return bytes;
+    }
+
+    public long heapBytesPerEntry() {
+        return size == 0 ? 0 : heapBytes() / size;
+    }
+
+    public double bloomFalsePositiveRate() {
+        return current.falsePositiveRate();
+    }
+
+    /**
+     * Share of lookups the Bloom filters could not answer on their own
+     */
+    public double bloomHitRatio() {
+        return lookups == 0 ? 0 : (double) bloomHits / lookups;
+    }
+
+    /**
+     * Share of lookups that passed the Bloom filters without an exact match
+     */
+    public double observedFalsePositiveRate() {
+        return lookups == 0 ? 0 : (double) falsePositives / lookups;
+    }
+
+    long lookups() {
+        return lookups;
+    }
+
+    long bloomHits() {
+        return bloomHits;
+    }
+
+    long falsePositives() {
+        return falsePositives;
+    }
+
+    private int allocate() {
+        if (!free.isEmpty()) return free.removeInt(free.size() - 1);
+        playerMsb.add(0);
+        playerLsb.add(0);
+        messageHash.add(0);
+        timestamp.add(0);
+        category.add(FREE);
+        next.add(NO_ENTRY);
+        if (keepText) text.add(null);
+        return category.size() - 1;
+    }
+
+    private void remove(int entry) {
+        if (category.getInt(entry) == FREE) return;
+        final long fingerprint = fingerprint(playerMsb.getLong(entry), playerLsb.getLong(entry), messageHash.getLong(entry));
+        final int head = heads.get(fingerprint);
+        if (head == entry) {
+            if (next.getInt(entry) == NO_ENTRY) heads.remove(fingerprint);
+            else heads.put(fingerprint, next.getInt(entry));
+        } else {
+            // chains only hold entries with the same fingerprint, they are short
+            for (int e = head; e != NO_ENTRY; e = next.getInt(e)) {
+                if (next.getInt(e) == entry) {
+                    next.set(e, next.getInt(entry));
+                    break;
+                }
+            }
+        }
+        category.set(entry, FREE);
+        next.set(entry, NO_ENTRY);
+        if (keepText) text.set(entry, null);
+        free.add(entry);
+        size--;
+    }
+
+    private boolean textMatches(int entry, String message) {
+        if (!keepText || message == null) return true;
+        final String stored = text.get(entry);
+        return stored == null || stored.equals(message);
+    }
+
+    private void rebuildBloom(int expectedInsertions) {
+        final double falsePositiveRate = current.falsePositiveRate();
+        current = new BloomFilter(expectedInsertions, falsePositiveRate);
+        previous = new BloomFilter(expectedInsertions, falsePositiveRate);
+        generationStart = System.currentTimeMillis();
+        for (int entry = 0; entry < category.size(); entry++) {
+            if (category.getInt(entry) != FREE)
+                current.put(fingerprint(playerMsb.getLong(entry), playerLsb.getLong(entry), messageHash.getLong(entry)));
+        }
+    }
+
+    private static long fingerprint(long msb, long lsb, long hash) {
+        long h = HashCommon.mix(msb);
+        h = HashCommon.mix(h ^ lsb);
+        return HashCommon.mix(h ^ hash);
+    }
+}
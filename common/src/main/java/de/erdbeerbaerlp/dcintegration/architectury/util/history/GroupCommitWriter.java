@@ -0,0 +1,170 @@
+package de.erdbeerbaerlp.dcintegration.architectury.util.history;
+
+import de.erdbeerbaerlp.dcintegration.common.DiscordIntegration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Background writer that persists records in group commits, so callers on the server or netty threads never touch the disk.
+ * <p>
+ * Records are handed over through a bounded queue. The writer thread collects them until either {@code batchSize} records
+ * are pending or {@code intervalMillis} passed since the first one, then hands the whole batch to the append sink at once.
+ * A rewrite replaces the persisted state with a snapshot and therefore supersedes every append queued before it.
+ *
+ * @param <T> record type
+ */
+public class GroupCommitWriter<T> {
+    private final String name;
+    private final Consumer<List<T>> appendSink;
+    private final Consumer<List<T>> rewriteSink;
+    private final int batchSize;
+    private final long intervalMillis;
+    private final BlockingQueue<Op<T>> queue;
+    private final AtomicLong dropped = new AtomicLong();
+    private Thread thread;
+    private volatile boolean running;
+
+    public GroupCommitWriter(String name, Consumer<List<T>> appendSink, Consumer<List<T>> rewriteSink, int capacity, int batchSize, long intervalMillis) {
+        this.name = name;
+        this.appendSink = appendSink;
+        this.rewriteSink = rewriteSink;
+        this.batchSize = Math.max(1, batchSize);
+        this.intervalMillis = Math.max(0, intervalMillis);
+        this.queue = new LinkedBlockingQueue<>(Math.max(1, capacity));
+    }
+
+    /**
+     * Queues a record for appending, never blocks. If the queue is full the record is dropped and counted.
+     */
+    public void append(T record) {
+        if (!running) ensureStarted();
+        if (!queue.offer(new Op<>(OpType.APPEND, record, null, null)) && dropped.getAndIncrement() % 1000 == 0)
+            DiscordIntegration.LOGGER.warn(name + " queue is full, dropped " + dropped.get() + " records so far");
+    }
+
+    /**
+     * Queues a rewrite of the persisted state with the given snapshot
+     */
+    public void rewrite(List<T> snapshot) {
+        if (!running) ensureStarted();
+        final Op<T> op = new Op<>(OpType.REWRITE, null, new ArrayList<>(snapshot), null);
+        while (!queue.offer(op)) {
+            // The snapshot contains everything still queued, so making room is safe
+            queue.clear();
+        }
+    }
+
+    /**
+     * Commits everything queued so far and waits for it to hit the sinks
+     *
+     * @return false if the writer did not finish within the timeout
+     */
+    public boolean flush(long timeout, TimeUnit unit) {
+        if (!running) return true;
+        final CountDownLatch latch = new CountDownLatch(1);
+        try {
+            if (!queue.offer(new Op<>(OpType.FLUSH, null, null, latch), timeout, unit)) return false;
+            return latch.await(timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Flushes pending records and stops the writer thread. Queuing new records starts it again.
+     */
+    public synchronized void shutdown(long timeout, TimeUnit unit) {
+        if (!running) return;
+        if (!flush(timeout, unit))
+            DiscordIntegration.LOGGER.warn(name + " did not flush within " + timeout + " " + unit.name().toLowerCase());
+        running = false;
+        thread.interrupt();
+        try {
+            thread.join(unit.toMillis(timeout));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+
+    public long droppedRecords() {
+        return dropped.get();
+    }
+
+    public int pendingRecords() {
+        return queue.size();
+    }
+
+    private synchronized void ensureStarted() {
+        if (running) return;
+        running = true;
+        thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run() {
+        final List<Op<T>> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                batch.add(queue.take());
+                final long deadline = System.currentTimeMillis() + intervalMillis;
+                while (batch.size() < batchSize && batch.get(batch.size() - 1).type() != OpType.FLUSH) {
+                    final long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) break;
+                    final Op<T> op = queue.poll(remaining, TimeUnit.MILLISECONDS);
+                    if (op == null) break;
+                    batch.add(op);
+                }
+            } catch (InterruptedException e) {
+                // shutdown() already flushed, just commit what was collected
+                queue.drainTo(batch);
+            }
+            commit(batch);
+            batch.clear();
+        }
+    }
+
+    private void commit(List<Op<T>> batch) {
+        final List<T> appends = new ArrayList<>(batch.size());
+        for (Op<T> op : batch) {
+            try {
+                switch (op.type()) {
+                    case APPEND -> appends.add(op.record());
+                    case REWRITE -> {
+                        // everything appended before the snapshot was taken is part of it
+                        appends.clear();
+                        rewriteSink.accept(op.snapshot());
+                    }
+                    case FLUSH -> {
+                        if (!appends.isEmpty()) appendSink.accept(appends);
+                        appends.clear();
+                        op.latch().countDown();
+                    }
+                }
+            } catch (Exception e) {
+                DiscordIntegration.LOGGER.error(name + " failed to write records", e);
+            }
+        }
+        try {
+            if (!appends.isEmpty()) appendSink.accept(appends);
+        } catch (Exception e) {
+            DiscordIntegration.LOGGER.error(name + " failed to write records", e);
+        }
+    }
+
+    private enum OpType {
+        APPEND, REWRITE, FLUSH
+    }
+
+    private record Op<T>(OpType type, T record, List<T> snapshot, CountDownLatch latch) {
+    }
+}
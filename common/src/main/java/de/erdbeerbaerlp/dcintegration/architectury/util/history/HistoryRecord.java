@@ -0,0 +1,88 @@
+package de.erdbeerbaerlp.dcintegration.architectury.util.history;
+
+import it.unimi.dsi.fastutil.HashCommon;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.UUID;
+
+/**
+ * Fixed-layout form of a history entry, as stored in the day segments.
+ * <p>
+ * Layout ({@value #SIZE} bytes, big endian): player UUID most and least significant bits, 64-bit message hash,
+ * epoch milliseconds of the event and an int of flags (the message category) followed by 4 reserved bytes.
+ */
+public record HistoryRecord(long playerMsb, long playerLsb, long messageHash, long timestamp, int flags) {
+    public static final int SIZE = 40;
+
+    public static HistoryRecord of(String playerID, String message, long timestamp) {
+        return of(playerID, message, timestamp, 0);
+    }
+
+    public static HistoryRecord of(String playerID, String message, long timestamp, int flags) {
+        final UUID uuid = playerUUID(playerID);
+        return new HistoryRecord(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), hash(message), timestamp, flags);
+    }
+
+    public static HistoryRecord read(ByteBuffer buffer, int offset) {
+        return new HistoryRecord(
+                buffer.getLong(offset),
+                buffer.getLong(offset + 8),
+                buffer.getLong(offset + 16),
+                buffer.getLong(offset + 24),
+                buffer.getInt(offset + 32));
+    }
+
+    public static long timestamp(ByteBuffer buffer, int offset) {
+        return buffer.getLong(offset + 24);
+    }
+
+    public static int flags(ByteBuffer buffer, int offset) {
+        return buffer.getInt(offset + 32);
+    }
+
+    public void write(ByteBuffer buffer, int offset) {
+        buffer.putLong(offset, playerMsb);
+        buffer.putLong(offset + 8, playerLsb);
+        buffer.putLong(offset + 16, messageHash);
+        buffer.putLong(offset + 24, timestamp);
+        buffer.putInt(offset + 32, flags);
+        buffer.putInt(offset + 36, 0);
+    }
+
+    public LocalDate date() {
+        return LocalDate.ofInstant(Instant.ofEpochMilli(timestamp), ZoneId.systemDefault());
+    }
+
+    public boolean sameKey(HistoryRecord other) {
+        return playerMsb == other.playerMsb && playerLsb == other.playerLsb && messageHash == other.messageHash;
+    }
+
+    /**
+     * Player IDs are usually UUIDs; the server ("ip:port") and internal IDs are mapped to stable name-based UUIDs.
+     */
+    public static UUID playerUUID(String playerID) {
+        if (playerID == null) playerID = "0000000";
+        try {
+            return UUID.fromString(playerID);
+        } catch (IllegalArgumentException e) {
+            return UUID.nameUUIDFromBytes(("DiscordIntegration:" + playerID).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-16 chars, finalized with murmur3's mixer
+     */
+    public static long hash(String message) {
+        if (message == null) return 0;
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < message.length(); i++) {
+            h ^= message.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return HashCommon.murmurHash3(h);
+    }
+}
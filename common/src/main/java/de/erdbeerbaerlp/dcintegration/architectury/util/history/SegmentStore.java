@@ -0,0 +1,238 @@
+package de.erdbeerbaerlp.dcintegration.architectury.util.history;
+
+import de.erdbeerbaerlp.dcintegration.common.DiscordIntegration;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Day-rotated history storage: one memory-mapped file of fixed-size {@link HistoryRecord}s per day.
+ * <p>
+ * Only the current day's segment is ever mapped, segments of other days are deleted when a day is opened,
+ * so expiring old history is a file deletion instead of a rewrite.
+ * <p>
+ * Segment layout: a {@value #HEADER_SIZE} byte header (magic, version, record size, reserved int, committed record count,
+ * reserved long) followed by the records. The count is only advanced after the records are written, a crash therefore
+ * never exposes a partially written record.
+ */
+public class SegmentStore {
+    private static final int MAGIC = 0x44494853; // "DIHS"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int COUNT_OFFSET = 16;
+    private static final String SUFFIX = ".bin";
+
+    private final Path directory;
+    private final int initialCapacity;
+    private LocalDate day;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private int count;
+
+    public SegmentStore(Path directory, int initialCapacity) {
+        this.directory = directory;
+        this.initialCapacity = Math.max(16, initialCapacity);
+    }
+
+    /**
+     * Maps the segment of the given day, creating it if needed, and deletes all other segments
+     */
+    public synchronized void open(LocalDate day) {
+        close();
+        try {
+            Files.createDirectories(directory);
+            final Path file = segmentFile(day);
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (channel.size() < HEADER_SIZE || !readHeader()) {
+                if (channel.size() > 0) {
+                    channel.close();
+                    DiscordIntegration.LOGGER.warn("History segment " + file + " is damaged, starting a new one");
+                    try {
+                        Files.move(file, file.resolveSibling(file.getFileName() + ".corrupt"), StandardCopyOption.REPLACE_EXISTING);
+                        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                    } catch (IOException e) {
+                        DiscordIntegration.LOGGER.warn("Could not keep damaged history segment " + file + ", overwriting it", e);
+                        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                    }
+                }
+                map(initialCapacity);
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+                buffer.putInt(8, HistoryRecord.SIZE);
+                setCount(0);
+            }
+            this.day = day;
+            // after the new segment is ready, a segment that cannot be deleted yet must not stop today's history
+            deleteSegmentsExcept(day);
+        } catch (IOException e) {
+            DiscordIntegration.LOGGER.error("Could not open history segment for " + day, e);
+            close();
+        }
+    }
+
+    public synchronized LocalDate day() {
+        return day;
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    public synchronized void forEach(Consumer<HistoryRecord> consumer) {
+        if (buffer == null) return;
+        for (int i = 0; i < count; i++)
+            consumer.accept(HistoryRecord.read(buffer, offset(i)));
+    }
+
+    /**
+     * Streams the records that are still live at {@code now} straight out of the mapping. Timestamp and flags are read
+     * in place first, expired records are skipped without being materialized.
+     *
+     * @param windowMillis window of a record by its flags
+     * @return number of records skipped as expired
+     */
+    public synchronized int forEachLive(long now, IntToLongFunction windowMillis, Consumer<HistoryRecord> consumer) {
+        if (buffer == null) return 0;
+        int skipped = 0;
+        for (int i = 0; i < count; i++) {
+            final int offset = offset(i);
+            if (HistoryRecord.timestamp(buffer, offset) + windowMillis.applyAsLong(HistoryRecord.flags(buffer, offset)) <= now) {
+                skipped++;
+                continue;
+            }
+            consumer.accept(HistoryRecord.read(buffer, offset));
+        }
+        return skipped;
+    }
+
+    /**
+     * Appends records and forces them to disk once for the whole batch. Records of a later day rotate the segment,
+     * records of an earlier day are already expired and skipped.
+     */
+    public synchronized void append(List<HistoryRecord> records) {
+        boolean dirty = false;
+        for (HistoryRecord record : records) {
+            final LocalDate recordDay = record.date();
+            if (day == null || recordDay.isAfter(day)) {
+                if (dirty) force();
+                dirty = false;
+                open(recordDay);
+            } else if (recordDay.isBefore(day)) continue;
+            if (buffer == null) return;
+            if (count == capacity && !grow()) return;
+            record.write(buffer, offset(count));
+            setCount(count + 1);
+            dirty = true;
+        }
+        if (dirty) force();
+    }
+
+    /**
+     * Replaces the current segment's contents with the given records
+     */
+    public synchronized void rewrite(List<HistoryRecord> records) {
+        if (buffer == null) open(LocalDate.now());
+        if (buffer == null) return;
+        setCount(0);
+        append(records);
+        force();
+    }
+
+    public synchronized void close() {
+        buffer = null;
+        day = null;
+        capacity = 0;
+        count = 0;
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                DiscordIntegration.LOGGER.warn("Error closing history segment", e);
+            }
+            channel = null;
+        }
+    }
+
+    /**
+     * Checks the header with a plain read and only maps the segment if it is valid, a damaged segment is never mapped
+     * and can still be renamed on systems that refuse to rename mapped files
+     */
+    private boolean readHeader() throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining())
+            if (channel.read(header, header.position()) < 0) return false;
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || header.getInt(8) != HistoryRecord.SIZE)
+            return false;
+        final int fileCapacity = (int) ((channel.size() - HEADER_SIZE) / HistoryRecord.SIZE);
+        final long committed = header.getLong(COUNT_OFFSET);
+        if (committed < 0 || committed > fileCapacity) return false;
+        map(Math.max(fileCapacity, initialCapacity));
+        count = (int) committed;
+        return true;
+    }
+
+    private void map(int newCapacity) throws IOException {
+        capacity = newCapacity;
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) newCapacity * HistoryRecord.SIZE);
+    }
+
+    private boolean grow() {
+        try {
+            force();
+            map(capacity * 2);
+            return true;
+        } catch (IOException e) {
+            DiscordIntegration.LOGGER.error("Could not grow history segment for " + day, e);
+            return false;
+        }
+    }
+
+    private void force() {
+        if (buffer != null) buffer.force();
+    }
+
+    private void setCount(int newCount) {
+        count = newCount;
+        buffer.putLong(COUNT_OFFSET, newCount);
+    }
+
+    private static int offset(int index) {
+        return HEADER_SIZE + index * HistoryRecord.SIZE;
+    }
+
+    private Path segmentFile(LocalDate day) {
+        return directory.resolve(day + SUFFIX);
+    }
+
+    /**
+     * Deletes the segments of other days. The previous day's segment may still be mapped until the garbage collector
+     * unmaps it, some systems (Windows) refuse to delete it until then; it is left for the next day change or start.
+     */
+    private void deleteSegmentsExcept(LocalDate day) {
+        final String keep = day + SUFFIX;
+        try (DirectoryStream<Path> segments = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path segment : segments) {
+                if (segment.getFileName().toString().equals(keep)) continue;
+                try {
+                    Files.deleteIfExists(segment);
+                } catch (IOException e) {
+                    DiscordIntegration.LOGGER.debug("History segment " + segment + " is still in use, deleting it later", e);
+                }
+            }
+        } catch (IOException e) {
+            DiscordIntegration.LOGGER.warn("Could not list old history segments in " + directory, e);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package de.erdbeerbaerlp.dcintegration.architectury.util.history;
+
+import it.unimi.dsi.fastutil.HashCommon;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread-safe history, split into independently locked {@link CompactHistoryIndex} stripes by player UUID.
+ * <p>
+ * Events of one player always land in the same stripe, so the server thread, netty threads and the command path only
+ * contend when they report the same player (or happen to share a stripe). Every stripe has its own timing wheel and
+ * Bloom filters and is expired lazily whenever it is accessed.
+ * <p>
+ * {@link #checkAndAdd} counts and adds under the same lock, two threads reporting the same message at the same time
+ * therefore never both see it as new.
+ */
+public class StripedHistoryIndex {
+    private final CompactHistoryIndex[] stripes;
+    private final ReentrantLock[] locks;
+    private final int mask;
+
+    public StripedHistoryIndex(int stripeCount, boolean keepText, long maxWindowMillis, int bloomExpectedInsertions, double bloomFalsePositiveRate) {
+        final int count = HashCommon.nextPowerOfTwo(Math.max(1, stripeCount));
+        this.stripes = new CompactHistoryIndex[count];
+        this.locks = new ReentrantLock[count];
+        this.mask = count - 1;
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new CompactHistoryIndex(keepText, maxWindowMillis, Math.max(64, bloomExpectedInsertions / count), bloomFalsePositiveRate);
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Counts live entries matching the record and, if there are none, adds it
+     *
+     * @return number of matching entries found before adding
+     */
+    public int checkAndAdd(HistoryRecord record, String message, long expiresAt, long now) {
+        final int stripe = stripe(record);
+        locks[stripe].lock();
+        try {
+            final CompactHistoryIndex index = stripes[stripe];
+            index.expire(now);
+            final int found = index.size() == 0 ? 0 : index.count(record, message);
+            if (found == 0) index.add(record, message, expiresAt);
+            return found;
+        } finally {
+            locks[stripe].unlock();
+        }
+    }
+
+    public void add(HistoryRecord record, String message, long expiresAt, long now) {
+        final int stripe = stripe(record);
+        locks[stripe].lock();
+        try {
+            stripes[stripe].expire(now);
+            stripes[stripe].add(record, message, expiresAt);
+        } finally {
+            locks[stripe].unlock();
+        }
+    }
+
+    public void expire(long now) {
+        for (int i = 0; i < stripes.length; i++) {
+            locks[i].lock();
+            try {
+                stripes[i].expire(now);
+            } finally {
+                locks[i].unlock();
+            }
+        }
+    }
+
+    public void clear() {
+        for (int i = 0; i < stripes.length; i++) {
+            locks[i].lock();
+            try {
+                stripes[i].clear();
+            } finally {
+                locks[i].unlock();
+            }
+        }
+    }
+
+    public void trim() {
+        for (int i = 0; i < stripes.length; i++) {
+            locks[i].lock();
+            try {
+                stripes[i].trim();
+            } finally {
+                locks[i].unlock();
+            }
+        }
+    }
+
+    /**
+     * Snapshot of all live entries, each stripe is copied under its own lock
+     */
+    public List<HistoryRecord> records() {
+        final List<HistoryRecord> records = new ArrayList<>();
+        for (int i = 0; i < stripes.length; i++) {
+            locks[i].lock();
+            try {
+                records.addAll(stripes[i].records());
+            } finally {
+                locks[i].unlock();
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Sum of the stripe sizes, read without locking and therefore only approximate while other threads add entries
+     */
+    public int size() {
+        int size = 0;
+        for (CompactHistoryIndex stripe : stripes)
+            size += stripe.size();
+        return size;
+    }
+
+    public long heapBytesPerEntry() {
+        long bytes = 0;
+        int size = 0;
+        for (int i = 0; i < stripes.length; i++) {
+            locks[i].lock();
+            try {
+                bytes += stripes[i].heapBytes();
+                size += stripes[i].size();
+            } finally {
+                locks[i].unlock();
+            }
+        }
+        return size == 0 ? 0 : bytes / size;
+    }
+
+    public double bloomFalsePositiveRate() {
+        return stripes[0].bloomFalsePositiveRate();
+    }
+
+    public double bloomHitRatio() {
+        long lookups = 0, hits = 0;
+        for (int i = 0; i < stripes.length; i++) {
+            locks[i].lock();
+            try {
+                lookups += stripes[i].lookups();
+                hits += stripes[i].bloomHits();
+            } finally {
+                locks[i].unlock();
+            }
+        }
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    public double observedFalsePositiveRate() {
+        long lookups = 0, falsePositives = 0;
+        for (int i = 0; i < stripes.length; i++) {
+            locks[i].lock();
+            try {
+                lookups += stripes[i].lookups();
+                falsePositives += stripes[i].falsePositives();
+            } finally {
+                locks[i].unlock();
+            }
+        }
+        return lookups == 0 ? 0 : (double) falsePositives / lookups;
+    }
+
+    private int stripe(HistoryRecord record) {
+        return (int) HashCommon.mix(record.playerMsb() ^ record.playerLsb()) & mask;
+    }
+}
@@ -0,0 +1,158 @@
+package de.erdbeerbaerlp.dcintegration.architectury.util.template;
+
+import de.erdbeerbaerlp.dcintegration.common.storage.Configuration;
+import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.exceptions.ParsingException;
+import net.dv8tion.jda.api.utils.data.DataObject;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * An embed type of the config, prepared once instead of being built from the config for every message.
+ * <p>
+ * The plain embed ({@code toEmbed()}) is built once and copied per message. A custom JSON embed is parsed once into a
+ * tree whose strings are compiled {@link Template}s, a message only renders those strings and builds the embed from the
+ * tree, the JSON is not rendered and parsed again. Since values are placed into the tree instead of into JSON text,
+ * quotes and line breaks in player names or messages no longer break the embed. A custom JSON that only becomes valid
+ * JSON after rendering, like a placeholder used as a number, keeps the old way of rendering the text and parsing it.
+ * <p>
+ * The templates of one config are kept together and replaced as a whole once a reload replaces the config's embed
+ * settings, so a message never mixes embeds of two configs.
+ */
+public final class EmbedTemplate {
+    private static volatile Templates current;
+
+    private final EmbedBuilder base;
+    private final String customJSON;
+    private final Map<String, Object> custom;
+    private final Function<String, EmbedBuilder> toEmbedJson;
+
+    /**
+     * Embed types of the config
+     */
+    public enum Kind {
+        START, STOP, JOIN, LEAVE, DEATH, ADVANCEMENT, CHAT
+    }
+
+    private record Templates(Object embedMode, EnumMap<Kind, EmbedTemplate> templates) {
+    }
+
+    private EmbedTemplate(EmbedBuilder base, String customJSON, Function<String, EmbedBuilder> toEmbedJson) {
+        this.base = base;
+        this.customJSON = customJSON == null ? "" : customJSON;
+        this.toEmbedJson = toEmbedJson;
+        this.custom = this.customJSON.isBlank() ? null : compile(this.customJSON);
+    }
+
+    public static EmbedTemplate of(Kind kind) {
+        final var embedMode = Configuration.instance().embedMode;
+        Templates templates = current;
+        if (templates == null || templates.embedMode() != embedMode) {
+            templates = new Templates(embedMode, new EnumMap<>(Kind.class));
+            current = templates;
+        }
+        // custom JSON can also be edited in place by config commands, a changed one is compiled again
+        final String customJSON = switch (kind) {
+            case START -> embedMode.startMessages.customJSON;
+            case STOP -> embedMode.stopMessages.customJSON;
+            case JOIN -> embedMode.playerJoinMessage.customJSON;
+            case LEAVE -> embedMode.playerLeaveMessages.customJSON;
+            case DEATH -> embedMode.deathMessage.customJSON;
+            case ADVANCEMENT -> embedMode.advancementMessage.customJSON;
+            case CHAT -> embedMode.chatMessages.customJSON;
+        };
+        synchronized (templates) {
+            EmbedTemplate template = templates.templates().get(kind);
+            if (template != null && template.customJSON.equals(customJSON == null ? "" : customJSON)) return template;
+            template = switch (kind) {
+                case START -> new EmbedTemplate(embedMode.startMessages.toEmbed(), customJSON, embedMode.startMessages::toEmbedJson);
+                case STOP -> new EmbedTemplate(embedMode.stopMessages.toEmbed(), customJSON, embedMode.stopMessages::toEmbedJson);
+                case JOIN -> new EmbedTemplate(embedMode.playerJoinMessage.toEmbed(), customJSON, embedMode.playerJoinMessage::toEmbedJson);
+                case LEAVE -> new EmbedTemplate(embedMode.playerLeaveMessages.toEmbed(), customJSON, embedMode.playerLeaveMessages::toEmbedJson);
+                case DEATH -> new EmbedTemplate(embedMode.deathMessage.toEmbed(), customJSON, embedMode.deathMessage::toEmbedJson);
+                case ADVANCEMENT -> new EmbedTemplate(embedMode.advancementMessage.toEmbed(), customJSON, embedMode.advancementMessage::toEmbedJson);
+                case CHAT -> new EmbedTemplate(embedMode.chatMessages.toEmbed(), customJSON, embedMode.chatMessages::toEmbedJson);
+            };
+            templates.templates().put(kind, template);
+            return template;
+        }
+    }
+
+    public boolean hasCustomJSON() {
+        return !customJSON.isBlank();
+    }
+
+    /**
+     * A new builder with what {@code toEmbed()} of the config sets
+     */
+    public EmbedBuilder embed() {
+        return new EmbedBuilder(base);
+    }
+
+    /**
+     * The custom JSON embed with the placeholders filled in
+     */
+    public EmbedBuilder custom(Placeholders placeholders) {
+        if (custom == null) return toEmbedJson.apply(Template.render(customJSON, placeholders));
+        final DataObject data = DataObject.empty();
+        for (Map.Entry<String, Object> e : custom.entrySet())
+            data.put(e.getKey(), render(e.getValue(), placeholders));
+        return EmbedBuilder.fromData(data);
+    }
+
+    // #region Compiled JSON
+    /**
+     * @return the JSON object with every string replaced by its template, null if the text is no valid JSON object as written
+     */
+    private static Map<String, Object> compile(String json) {
+        try {
+            @SuppressWarnings("unchecked") final Map<String, Object> tree = (Map<String, Object>) compileValue(DataObject.fromJson(json).toMap());
+            return tree;
+        } catch (ParsingException | ClassCastException e) {
+            return null;
+        }
+    }
+
+    private static Object compileValue(Object value) {
+        if (value instanceof String s) {
+            final Template template = Template.of(s);
+            return template.isConstant() ? s : template;
+        }
+        if (value instanceof Map<?, ?> map) {
+            final Map<String, Object> out = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> e : map.entrySet())
+                out.put(String.valueOf(e.getKey()), compileValue(e.getValue()));
+            return out;
+        }
+        if (value instanceof List<?> list) {
+            final List<Object> out = new ArrayList<>(list.size());
+            for (Object element : list)
+                out.add(compileValue(element));
+            return out;
+        }
+        return value;
+    }
+
+    private static Object render(Object value, Placeholders placeholders) {
+        if (value instanceof Template template) return template.render(placeholders);
+        if (value instanceof Map<?, ?> map) {
+            final Map<String, Object> out = new LinkedHashMap<>(map.size() * 2);
+            for (Map.Entry<?, ?> e : map.entrySet())
+                out.put((String) e.getKey(), render(e.getValue(), placeholders));
+            return out;
+        }
+        if (value instanceof List<?> list) {
+            final List<Object> out = new ArrayList<>(list.size());
+            for (Object element : list)
+                out.add(render(element, placeholders));
+            return out;
+        }
+        return value;
+    }
+    // #endregion Compiled JSON
+}
@@ -0,0 +1,55 @@
+package de.erdbeerbaerlp.dcintegration.architectury.util.template;
+
+import de.erdbeerbaerlp.dcintegration.common.storage.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Values for the placeholders of a {@link Template}. Suppliers are only called when a rendered template contains their
+ * key, and at most once, so one instance can be shared by all templates rendered for the same message.
+ * <p>
+ * Not thread-safe, create one per message.
+ */
+public final class Placeholders {
+    private final Map<String, Object> values = new HashMap<>();
+
+    public Placeholders put(String key, String value) {
+        values.put(key, value);
+        return this;
+    }
+
+    public Placeholders put(String key, Supplier<String> value) {
+        values.put(key, value);
+        return this;
+    }
+
+    /**
+     * @return value of the placeholder, null if it has none
+     */
+    public String get(String key) {
+        final Object value = values.get(key);
+        if (value instanceof Supplier<?> supplier) {
+            final String computed = String.valueOf(supplier.get());
+            values.put(key, computed);
+            return computed;
+        }
+        return (String) value;
+    }
+
+    /**
+     * Renders the configured {@code webhook.playerAvatarURL} for a player
+     *
+     * @param name plain player name
+     */
+    public static String avatarURL(UUID uuid, String name) {
+        final String dashed = uuid.toString();
+        return Template.of(Configuration.instance().webhook.playerAvatarURL).render(new Placeholders()
+                .put("uuid", dashed)
+                .put("uuid_dashless", () -> dashed.replace("-", ""))
+                .put("name", name)
+                .put("randomUUID", () -> UUID.randomUUID().toString()));
+    }
+}
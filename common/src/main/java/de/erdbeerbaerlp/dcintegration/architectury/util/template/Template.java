@@ -0,0 +1,128 @@
+package de.erdbeerbaerlp.dcintegration.architectury.util.template;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A message or embed template with {@code %key%} placeholders, split into literal text and placeholder keys once.
+ * <p>
+ * Rendering appends the literals and the placeholder values into one builder, so it allocates a single string no matter
+ * how many placeholders the template knows, and a value is only computed if the template actually contains its key.
+ * Values are inserted as they are, a value that happens to contain {@code %key%} is not expanded again.
+ * Placeholders without a value are kept as written, like the {@code String.replace} chains this replaces did.
+ * <p>
+ * Compiled templates are cached by their source, so templates coming from the config are parsed once per config
+ * (re)load instead of once per message.
+ */
+public final class Template {
+    private static final int MAX_CACHED = 512;
+    private static final Map<String, Template> cache = new ConcurrentHashMap<>();
+    private static final Map<String, Template> multilineCache = new ConcurrentHashMap<>();
+
+    private final String[] literals;
+    private final String[] keys;
+    private final int literalLength;
+
+    private Template(String[] literals, String[] keys) {
+        this.literals = literals;
+        this.keys = keys;
+        int length = 0;
+        for (String literal : literals)
+            length += literal.length();
+        this.literalLength = length;
+    }
+
+    public static Template of(String source) {
+        return cached(cache, source, false);
+    }
+
+    /**
+     * Like {@link #of(String)}, but also turns literal {@code \n} sequences of the template text into line breaks
+     */
+    public static Template multiline(String source) {
+        return cached(multilineCache, source, true);
+    }
+
+    public static String render(String source, Placeholders placeholders) {
+        return of(source).render(placeholders);
+    }
+
+    private static Template cached(Map<String, Template> cache, String source, boolean unescapeNewlines) {
+        final Template template = cache.get(source);
+        if (template != null) return template;
+        // Sources only change on config reloads, dropping everything now and then is enough to bound the cache
+        if (cache.size() >= MAX_CACHED) cache.clear();
+        return cache.computeIfAbsent(source, s -> compile(s, unescapeNewlines));
+    }
+
+    static Template compile(String source, boolean unescapeNewlines) {
+        final List<String> literals = new ArrayList<>();
+        final List<String> keys = new ArrayList<>();
+        final StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < source.length()) {
+            final char c = source.charAt(i);
+            if (c == '%') {
+                final int end = keyEnd(source, i + 1);
+                if (end != -1) {
+                    literals.add(literal.toString());
+                    literal.setLength(0);
+                    keys.add(source.substring(i + 1, end));
+                    i = end + 1;
+                    continue;
+                }
+            } else if (unescapeNewlines && c == '\\' && i + 1 < source.length() && source.charAt(i + 1) == 'n') {
+                literal.append('\n');
+                i += 2;
+                continue;
+            }
+            literal.append(c);
+            i++;
+        }
+        literals.add(literal.toString());
+        return new Template(literals.toArray(new String[0]), keys.toArray(new String[0]));
+    }
+
+    /**
+     * @return index of the closing '%' if a placeholder key starts at {@code start}, -1 otherwise
+     */
+    private static int keyEnd(String source, int start) {
+        for (int i = start; i < source.length(); i++) {
+            final char c = source.charAt(i);
+            if (c == '%') return i == start ? -1 : i;
+            if (!isKeyChar(c)) return -1;
+        }
+        return -1;
+    }
+
+    private static boolean isKeyChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_' || c == '-' || c == '#';
+    }
+
+    public String render(Placeholders placeholders) {
+        if (keys.length == 0) return literals[0];
+        final StringBuilder out = new StringBuilder(literalLength + 16 * keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            out.append(literals[i]);
+            final String value = placeholders.get(keys[i]);
+            if (value != null) out.append(value);
+            else out.append('%').append(keys[i]).append('%');
+        }
+        return out.append(literals[keys.length]).toString();
+    }
+
+    public boolean uses(String key) {
+        for (String k : keys)
+            if (k.equals(key)) return true;
+        return false;
+    }
+
+    /**
+     * Whether the template has no placeholders, it then always renders to the same text
+     */
+    public boolean isConstant() {
+        return keys.length == 0;
+    }
+}
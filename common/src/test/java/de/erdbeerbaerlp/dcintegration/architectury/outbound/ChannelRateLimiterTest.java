@@ -0,0 +1,179 @@
+package de.erdbeerbaerlp.dcintegration.architectury.outbound;
+
+import com.sun.net.httpserver.HttpServer;
+import de.erdbeerbaerlp.dcintegration.architectury.storage.TuningConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Drives the limiter with a fake clock, on its own and against a local endpoint that answers like Discord's REST API
+ */
+class ChannelRateLimiterTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private long clock;
+    private HttpServer server;
+    private FakeDiscord discord;
+
+    @AfterEach
+    void tearDown() {
+        if (server != null) server.stop(0);
+    }
+
+    @Test
+    void channelWindowHoldsBackTheSixthMessage() {
+        final ChannelRateLimiter limiter = new ChannelRateLimiter(limits(5, 5_000, 50, 1_000), () -> clock);
+        for (int i = 0; i < 5; i++)
+            assertEquals(0, limiter.reserve("chat", clock));
+        assertEquals(5 * SECOND, limiter.reserve("chat", clock));
+        clock += 2 * SECOND;
+        assertEquals(3 * SECOND, limiter.reserve("chat", clock));
+        assertEquals(0, limiter.reserve("deaths", clock), "other channels have their own window");
+        clock += 3 * SECOND;
+        assertEquals(0, limiter.reserve("chat", clock));
+    }
+
+    @Test
+    void globalLimitSpansChannels() {
+        final ChannelRateLimiter limiter = new ChannelRateLimiter(limits(5, 5_000, 3, 1_000), () -> clock);
+        assertEquals(0, limiter.reserve("a", clock));
+        assertEquals(0, limiter.reserve("b", clock));
+        assertEquals(0, limiter.reserve("c", clock));
+        assertEquals(SECOND, limiter.reserve("d", clock));
+        clock += SECOND;
+        assertEquals(0, limiter.reserve("d", clock));
+    }
+
+    @Test
+    void delayDoesNotTakeARequest() {
+        final ChannelRateLimiter limiter = new ChannelRateLimiter(limits(1, 1_000, 50, 1_000), () -> clock);
+        for (int i = 0; i < 3; i++)
+            assertEquals(0, limiter.delay("chat"));
+        assertEquals(0, limiter.reserve("chat", clock));
+        clock += SECOND / 4;
+        assertEquals(SECOND * 3 / 4, limiter.delay("chat"));
+    }
+
+    @Test
+    void pacedRequestsAreNeverRateLimitedByTheEndpoint() throws IOException {
+        startFakeDiscord(5, 5_000, 50, 1_000);
+        final ChannelRateLimiter limiter = new ChannelRateLimiter(limits(5, 5_000, 50, 1_000), () -> clock);
+        final String[] channels = {"chat", "server", "deaths", "commands"};
+        for (int i = 0; i < 30; i++) {
+            for (String channel : channels) {
+                long wait;
+                while ((wait = limiter.reserve(channel, clock)) > 0)
+                    clock += wait;
+                assertEquals(200, post(channel), () -> "429 for " + channel + " at " + clock);
+            }
+        }
+        assertEquals(120, discord.accepted);
+        // 30 messages per channel need 6 windows of 5 seconds, the last one starting after 25 seconds
+        assertEquals(25 * SECOND, clock);
+    }
+
+    @Test
+    void unpacedBurstIsRateLimitedByTheEndpoint() throws IOException {
+        startFakeDiscord(5, 5_000, 50, 1_000);
+        int limited = 0;
+        for (int i = 0; i < 10; i++)
+            if (post("chat") == 429) limited++;
+        assertEquals(5, limited, "the endpoint itself enforces the limit");
+        assertEquals(5, discord.accepted);
+    }
+
+    private static TuningConfig.RateLimits limits(int channelRequests, long channelPeriodMillis, int globalRequests, long globalPeriodMillis) {
+        final TuningConfig.RateLimits limits = new TuningConfig.RateLimits();
+        limits.channelRequests = channelRequests;
+        limits.channelPeriodMillis = channelPeriodMillis;
+        limits.globalRequests = globalRequests;
+        limits.globalPeriodMillis = globalPeriodMillis;
+        return limits;
+    }
+
+    private void startFakeDiscord(int channelRequests, long channelPeriodMillis, int globalRequests, long globalPeriodMillis) throws IOException {
+        discord = new FakeDiscord(channelRequests, TimeUnit.MILLISECONDS.toNanos(channelPeriodMillis), globalRequests, TimeUnit.MILLISECONDS.toNanos(globalPeriodMillis));
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/channels/", exchange -> {
+            // the request carries the fake time, the endpoint has no clock of its own
+            final long now = Long.parseLong(exchange.getRequestHeaders().getFirst("X-Fake-Nanos"));
+            final String channel = exchange.getRequestURI().getPath().split("/")[2];
+            final int status = discord.handle(channel, now);
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    private int post(String channel) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) new URL("http://" + server.getAddress().getHostString() + ":"
+                + server.getAddress().getPort() + "/channels/" + channel + "/messages").openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setRequestProperty("X-Fake-Nanos", Long.toString(clock));
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Discord's bucket semantics: a bucket is full again a fixed time after the first request that found it full,
+     * requests beyond its size until then get a 429
+     */
+    private static final class FakeDiscord {
+        private final int channelRequests;
+        private final long channelPeriod;
+        private final Map<String, Bucket> channels = new HashMap<>();
+        private final Bucket global;
+        private int accepted;
+
+        FakeDiscord(int channelRequests, long channelPeriod, int globalRequests, long globalPeriod) {
+            this.channelRequests = channelRequests;
+            this.channelPeriod = channelPeriod;
+            this.global = new Bucket(globalRequests, globalPeriod);
+        }
+
+        synchronized int handle(String channel, long now) {
+            final Bucket bucket = channels.computeIfAbsent(channel, c -> new Bucket(channelRequests, channelPeriod));
+            bucket.refill(now);
+            global.refill(now);
+            if (bucket.remaining == 0 || global.remaining == 0) return 429;
+            bucket.remaining--;
+            global.remaining--;
+            accepted++;
+            return 200;
+        }
+    }
+
+    private static final class Bucket {
+        final int size;
+        final long period;
+        int remaining;
+        long resetAt;
+        boolean started;
+
+        Bucket(int size, long period) {
+            this.size = size;
+            this.period = period;
+        }
+
+        void refill(long now) {
+            if (started && now - resetAt < 0) return;
+            remaining = size;
+            resetAt = now + period;
+            started = true;
+        }
+    }
+}
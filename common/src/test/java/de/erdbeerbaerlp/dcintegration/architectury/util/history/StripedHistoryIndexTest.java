@@ -0,0 +1,125 @@
+package de.erdbeerbaerlp.dcintegration.architectury.util.history;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reports the same messages from many threads at once, like the server thread, netty threads and the command path do
+ * through {@code MessageHistory.checkDuplicate}
+ */
+class StripedHistoryIndexTest {
+    private static final int THREADS = 8;
+    private static final int PLAYERS = 200;
+    private static final int MESSAGES_PER_PLAYER = 20;
+    // the timing wheel starts at the wall clock, older timestamps would count as expired already
+    private static final long NOW = System.currentTimeMillis();
+    private static final long WINDOW = TimeUnit.MINUTES.toMillis(5);
+
+    private record Report(String playerID, String message) {
+    }
+
+    @Test
+    void concurrentReportsPassExactlyOncePerMessage() throws Exception {
+        final StripedHistoryIndex index = new StripedHistoryIndex(16, true, WINDOW, 10_000, 0.01);
+        final List<Report> reports = reports();
+        final ConcurrentHashMap<Report, AtomicInteger> passed = new ConcurrentHashMap<>();
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            final List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                // every thread reports every message, in its own order
+                final List<Report> order = new ArrayList<>(reports);
+                Collections.shuffle(order, new Random(t));
+                workers.add(pool.submit(() -> {
+                    start.await();
+                    for (Report report : order) {
+                        final HistoryRecord record = HistoryRecord.of(report.playerID(), report.message(), NOW);
+                        if (index.checkAndAdd(record, report.message(), NOW + WINDOW, NOW) == 0)
+                            passed.computeIfAbsent(report, r -> new AtomicInteger()).incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            // rethrows anything a worker threw
+            for (Future<?> worker : workers)
+                worker.get(60, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(reports.size(), passed.size(), "every distinct message passes");
+        for (var entry : passed.entrySet())
+            assertEquals(1, entry.getValue().get(), () -> "passed more than once: " + entry.getKey());
+        assertEquals(reports.size(), index.size());
+        assertEquals(reports.size(), index.records().size());
+    }
+
+    @Test
+    void snapshotsWhileReportingDoNotThrow() throws Exception {
+        final StripedHistoryIndex index = new StripedHistoryIndex(4, false, WINDOW, 1_000, 0.01);
+        final List<Report> reports = reports();
+        final AtomicBoolean done = new AtomicBoolean();
+        final ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            final List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < THREADS / 2; t++) {
+                final int offset = t;
+                workers.add(pool.submit(() -> {
+                    for (int i = offset; i < reports.size(); i += THREADS / 2) {
+                        final Report report = reports.get(i);
+                        // later reports expire the first ones again, so entries are removed while others are read
+                        final long now = NOW + i;
+                        index.checkAndAdd(HistoryRecord.of(report.playerID(), report.message(), now), report.message(), now + reports.size() / 2, now);
+                    }
+                    return null;
+                }));
+            }
+            final List<Future<?>> readers = new ArrayList<>();
+            for (int t = 0; t < THREADS / 2; t++) {
+                readers.add(pool.submit(() -> {
+                    while (!done.get()) {
+                        for (HistoryRecord record : index.records())
+                            assertTrue(record.timestamp() >= NOW);
+                        index.size();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers)
+                worker.get(60, TimeUnit.SECONDS);
+            done.set(true);
+            for (Future<?> reader : readers)
+                reader.get(60, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static List<Report> reports() {
+        final List<Report> reports = new ArrayList<>();
+        final Random random = new Random(42);
+        for (int p = 0; p < PLAYERS; p++) {
+            final String playerID = new UUID(random.nextLong(), random.nextLong()).toString();
+            for (int m = 0; m < MESSAGES_PER_PLAYER; m++)
+                reports.add(new Report(playerID, "message " + m));
+        }
+        return reports;
+    }
+}